@@ -0,0 +1,153 @@
+package edu.iastate.objectutils.benchmarks;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.iastate.objectutils.ObjectUtils;
+import edu.iastate.objectutils.SnapshotArena;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ComparisonBenchmark {
+    @Param
+    public Graphs.Shape shape;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ObjectUtils objectUtils;
+
+    private Object graph;
+
+    private Object equalGraph;
+
+    private Object perturbedGraph;
+
+    private Object snapshot;
+
+    private Object equalSnapshot;
+
+    private Object perturbedSnapshot;
+
+    private Object hashConsedSnapshot;
+
+    private Object equalHashConsedSnapshot;
+
+    private SnapshotArena arena;
+
+    private long snapshotHandle;
+
+    private long equalHandle;
+
+    private long perturbedHandle;
+
+    @Setup
+    public void setUp() {
+        this.objectUtils = ObjectUtils.build();
+        this.graph = Graphs.generate(this.shape, this.size, false);
+        this.equalGraph = Graphs.generate(this.shape, this.size, false);
+        this.perturbedGraph = Graphs.generate(this.shape, this.size, true);
+        this.snapshot = this.objectUtils.makeSerializable(this.graph);
+        this.equalSnapshot = this.objectUtils.makeSerializable(Graphs.generate(this.shape, this.size, false));
+        this.perturbedSnapshot = this.objectUtils.makeSerializable(Graphs.generate(this.shape, this.size, true));
+        final ObjectUtils hashConsing = ObjectUtils.build().withHashConsing();
+        this.hashConsedSnapshot = hashConsing.makeSerializable(this.graph);
+        this.equalHashConsedSnapshot = hashConsing.makeSerializable(this.equalGraph);
+        this.arena = new SnapshotArena();
+        this.snapshotHandle = this.arena.add(this.snapshot);
+        this.equalHandle = this.arena.add(this.equalSnapshot);
+        this.perturbedHandle = this.arena.add(this.perturbedSnapshot);
+    }
+
+    @Benchmark
+    public boolean deepEquals() {
+        return this.objectUtils.deepEquals(this.snapshot, this.equalSnapshot);
+    }
+
+    @Benchmark
+    public boolean deepEqualsPerturbed() {
+        return this.objectUtils.deepEquals(this.snapshot, this.perturbedSnapshot);
+    }
+
+    @Benchmark
+    public double extendedHammingDistance() {
+        return this.objectUtils.extendedHammingDistance(this.snapshot, this.perturbedSnapshot);
+    }
+
+    @Benchmark
+    public boolean snapshotAndCompare() {
+        return this.objectUtils.deepEquals(this.objectUtils.makeSerializable(this.graph),
+                this.objectUtils.makeSerializable(this.perturbedGraph));
+    }
+
+    @Benchmark
+    public boolean snapshotAndCompareLazily() {
+        return this.objectUtils.deepEquals(this.objectUtils.makeSerializableLazily(this.graph),
+                this.objectUtils.makeSerializableLazily(this.perturbedGraph));
+    }
+
+    @Benchmark
+    public boolean snapshotAndCompareEqual() {
+        return this.objectUtils.deepEquals(this.objectUtils.makeSerializable(this.graph),
+                this.objectUtils.makeSerializable(this.equalGraph));
+    }
+
+    @Benchmark
+    public boolean deepEqualsLive() {
+        return this.objectUtils.deepEqualsLive(this.graph, this.equalGraph);
+    }
+
+    @Benchmark
+    public boolean deepEqualsLivePerturbed() {
+        return this.objectUtils.deepEqualsLive(this.graph, this.perturbedGraph);
+    }
+
+    @Benchmark
+    public boolean deepEqualsHashConsed() {
+        return this.objectUtils.deepEquals(this.hashConsedSnapshot, this.equalHashConsedSnapshot);
+    }
+
+    @Benchmark
+    public boolean arenaDeepEquals() {
+        return this.arena.deepEquals(this.snapshotHandle, this.equalHandle);
+    }
+
+    @Benchmark
+    public double arenaExtendedHammingDistance() {
+        return this.arena.extendedHammingDistance(this.snapshotHandle, this.perturbedHandle);
+    }
+}
@@ -0,0 +1,86 @@
+package edu.iastate.objectutils.benchmarks;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.iastate.objectutils.ObjectUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class DistanceMatrixBenchmark {
+    @Param({"PRIMITIVE_POJOS", "STRINGS"})
+    public Graphs.Shape shape;
+
+    @Param({"10"})
+    public int size;
+
+    @Param({"500"})
+    public int count;
+
+    private ObjectUtils objectUtils;
+
+    private List<Object> snapshots;
+
+    @Setup
+    public void setUp() {
+        this.objectUtils = ObjectUtils.build();
+        this.snapshots = new ArrayList<>(this.count);
+        for (int i = 0; i < this.count; i++) {
+            this.snapshots.add(this.objectUtils.makeSerializable(Graphs.generate(this.shape, this.size, i % 2 == 0)));
+        }
+    }
+
+    @Benchmark
+    public double[] pairwiseCalls() {
+        final int n = this.snapshots.size();
+        final double[] result = new double[n * (n - 1) / 2];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                result[k++] = this.objectUtils.extendedHammingDistance(this.snapshots.get(i), this.snapshots.get(j));
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public double[] upperTriangularMatrix() {
+        return this.objectUtils.extendedHammingDistanceMatrix(this.snapshots, true);
+    }
+}
@@ -0,0 +1,177 @@
+package edu.iastate.objectutils.benchmarks;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Random;
+
+public final class Graphs {
+    private static final int PERTURBATION_PERIOD = 100;
+
+    private Graphs() {
+        throw new UnsupportedOperationException();
+    }
+
+    public enum Shape {
+        WIDE_ARRAY,
+        DEEP_CHAIN,
+        CYCLIC,
+        PRIMITIVE_POJOS,
+        STRINGS
+    }
+
+    static Object generate(final Shape shape, final int size, final boolean perturbed) {
+        final Random random = new Random(size);
+        switch (shape) {
+            case WIDE_ARRAY:
+                return wideArray(random, size, perturbed);
+            case DEEP_CHAIN:
+                return deepChain(random, size, perturbed);
+            case CYCLIC:
+                return cyclic(random, size, perturbed);
+            case PRIMITIVE_POJOS:
+                return primitivePojos(random, size, perturbed);
+            default:
+                return strings(random, size, perturbed);
+        }
+    }
+
+    private static int perturb(final int value, final int index, final boolean perturbed) {
+        return perturbed && index % PERTURBATION_PERIOD == 0 ? ~value : value;
+    }
+
+    private static Object wideArray(final Random random, final int size, final boolean perturbed) {
+        final Object[] array = new Object[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = perturb(random.nextInt(), i, perturbed);
+        }
+        return array;
+    }
+
+    private static Object deepChain(final Random random, final int size, final boolean perturbed) {
+        ChainNode head = null;
+        for (int i = 0; i < size; i++) {
+            head = new ChainNode(perturb(random.nextInt(), i, perturbed), head);
+        }
+        return head;
+    }
+
+    private static Object cyclic(final Random random, final int size, final boolean perturbed) {
+        final Vertex[] vertices = new Vertex[size];
+        for (int i = 0; i < size; i++) {
+            vertices[i] = new Vertex(perturb(i, i, perturbed));
+        }
+        for (int i = 0; i < size; i++) {
+            final Vertex vertex = vertices[i];
+            vertex.edges[0] = vertices[(i + 1) % size];
+            vertex.edges[1] = vertices[random.nextInt(size)];
+            vertex.edges[2] = vertices[random.nextInt(size)];
+        }
+        return vertices[0];
+    }
+
+    private static Object primitivePojos(final Random random, final int size, final boolean perturbed) {
+        final Pojo[] pojos = new Pojo[size];
+        for (int i = 0; i < size; i++) {
+            pojos[i] = new Pojo(random, perturb(random.nextInt(), i, perturbed));
+        }
+        return pojos;
+    }
+
+    private static Object strings(final Random random, final int size, final boolean perturbed) {
+        final Contact[] contacts = new Contact[size];
+        for (int i = 0; i < size; i++) {
+            final int id = perturb(random.nextInt(1_000_000), i, perturbed);
+            contacts[i] = new Contact("name-" + id, "user" + id + "@example.org", "city-" + random.nextInt(100));
+        }
+        return contacts;
+    }
+
+    static final class ChainNode {
+        final int value;
+
+        final ChainNode next;
+
+        ChainNode(final int value, final ChainNode next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    static final class Vertex {
+        final int id;
+
+        final Vertex[] edges;
+
+        Vertex(final int id) {
+            this.id = id;
+            this.edges = new Vertex[3];
+        }
+    }
+
+    static final class Pojo {
+        final int i;
+
+        final long l;
+
+        final double d;
+
+        final float f;
+
+        final short s;
+
+        final byte b;
+
+        final char c;
+
+        final boolean z;
+
+        final int[] data;
+
+        Pojo(final Random random, final int i) {
+            this.i = i;
+            this.l = random.nextLong();
+            this.d = random.nextDouble();
+            this.f = random.nextFloat();
+            this.s = (short) random.nextInt();
+            this.b = (byte) random.nextInt();
+            this.c = (char) random.nextInt();
+            this.z = random.nextBoolean();
+            this.data = new int[8];
+            for (int k = 0; k < this.data.length; k++) {
+                this.data[k] = random.nextInt();
+            }
+        }
+    }
+
+    static final class Contact {
+        final String name;
+
+        final String email;
+
+        final String city;
+
+        Contact(final String name, final String email, final String city) {
+            this.name = name;
+            this.email = email;
+            this.city = city;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package edu.iastate.objectutils.benchmarks;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.iastate.objectutils.ObjectUtils;
+import edu.iastate.objectutils.SnapshotSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SnapshotBenchmark {
+    @Param
+    public Graphs.Shape shape;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ObjectUtils objectUtils;
+
+    private Object graph;
+
+    private SnapshotSession session;
+
+    @Setup
+    public void setUp() {
+        this.objectUtils = ObjectUtils.build();
+        this.graph = Graphs.generate(this.shape, this.size, false);
+        this.session = this.objectUtils.newSession();
+        this.session.snapshot(this.graph);
+    }
+
+    @Benchmark
+    public Object makeSerializable() {
+        return this.objectUtils.makeSerializable(this.graph);
+    }
+
+    @Benchmark
+    public Object makeSerializableParallel() {
+        return this.objectUtils.makeSerializable(this.graph, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public Object incrementalUnchanged() {
+        return this.session.snapshot(this.graph);
+    }
+}
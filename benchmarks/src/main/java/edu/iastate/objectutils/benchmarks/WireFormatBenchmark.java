@@ -0,0 +1,101 @@
+package edu.iastate.objectutils.benchmarks;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.iastate.objectutils.ObjectUtils;
+import edu.iastate.objectutils.ProxyReader;
+import edu.iastate.objectutils.ProxyWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WireFormatBenchmark {
+    @Param({"WIDE_ARRAY", "CYCLIC", "PRIMITIVE_POJOS", "STRINGS"})
+    public Graphs.Shape shape;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private Object snapshot;
+
+    private ByteBuffer wireBytes;
+
+    private byte[] javaBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.snapshot = ObjectUtils.build().makeSerializable(Graphs.generate(this.shape, this.size, false));
+        this.wireBytes = ProxyWriter.write(this.snapshot);
+        this.javaBytes = javaSerialize(this.snapshot);
+    }
+
+    @Benchmark
+    public ByteBuffer writeWireFormat() {
+        return ProxyWriter.write(this.snapshot);
+    }
+
+    @Benchmark
+    public Object readWireFormat() {
+        return ProxyReader.read(this.wireBytes.duplicate());
+    }
+
+    @Benchmark
+    public byte[] writeJavaSerialization() throws IOException {
+        return javaSerialize(this.snapshot);
+    }
+
+    @Benchmark
+    public Object readJavaSerialization() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(this.javaBytes))) {
+            return ois.readObject();
+        }
+    }
+
+    private static byte[] javaSerialize(final Object snapshot) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(snapshot);
+        }
+        return bytes.toByteArray();
+    }
+}
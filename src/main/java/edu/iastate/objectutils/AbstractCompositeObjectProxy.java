@@ -20,15 +20,58 @@ package edu.iastate.objectutils;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.List;
 
 abstract class AbstractCompositeObjectProxy implements Proxy {
-    String typeName;
+    transient int typeId;
 
     List<Proxy> values;
 
+    transient int hash;
+
+    transient boolean canonical;
+
     protected AbstractCompositeObjectProxy(Class<?> type, List<Proxy> values) {
-        this.typeName = type.getTypeName();
+        this(TypeTable.idOf(type), values);
+    }
+
+    protected AbstractCompositeObjectProxy(int typeId, List<Proxy> values) {
+        this.typeId = typeId;
         this.values = values;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AbstractCompositeObjectProxy)) {
+            return false;
+        }
+        return ObjectUtils.structurallyEquals(this, (AbstractCompositeObjectProxy) o);
+    }
+
+    @Override
+    public int hashCode() {
+        final int h = this.hash;
+        return h == 0 ? ObjectUtils.structuralHashCode(this) : h;
+    }
+
+    void canonicalize(final int contentHash) {
+        this.hash = contentHash;
+        this.canonical = true;
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(TypeTable.nameOf(this.typeId));
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.typeId = TypeTable.idOf((String) in.readObject());
+    }
 }
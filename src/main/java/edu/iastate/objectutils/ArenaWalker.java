@@ -0,0 +1,636 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+final class ArenaWalker {
+    private static final int SLOT_SIZE = SnapshotArena.SLOT_SIZE;
+
+    private final ByteBuffer lhs;
+
+    private final int lhsBase;
+
+    private final IntUnaryOperator lhsTypes;
+
+    private final ByteBuffer rhs;
+
+    private final int rhsBase;
+
+    private final IntUnaryOperator rhsTypes;
+
+    private final IntMap pairs = new IntMap();
+
+    private final IntMap rhsVisited = new IntMap();
+
+    private int[] undoLog = new int[16];
+
+    private int undoTop;
+
+    private Map<Integer, Object> lhsValues;
+
+    private Map<Integer, Object> rhsValues;
+
+    private int[] lhsFrames = new int[16];
+
+    private int[] rhsFrames = new int[16];
+
+    private int[] cursors = new int[16];
+
+    private int[] sizes = new int[16];
+
+    private int top;
+
+    private Matching[] matchings = new Matching[16];
+
+    private int matchTop;
+
+    ArenaWalker(final ByteBuffer lhs,
+                final int lhsBase,
+                final IntUnaryOperator lhsTypes,
+                final ByteBuffer rhs,
+                final int rhsBase,
+                final IntUnaryOperator rhsTypes) {
+        this.lhs = lhs;
+        this.lhsBase = lhsBase;
+        this.lhsTypes = lhsTypes;
+        this.rhs = rhs;
+        this.rhsBase = rhsBase;
+        this.rhsTypes = rhsTypes;
+    }
+
+    boolean deepEquals() {
+        if (isSameRecord(this.lhsBase, this.rhsBase)) {
+            return true;
+        }
+        return enterEquals(this.lhsBase, this.rhsBase) && drain(0D, false) == 0D;
+    }
+
+    double distance() {
+        return drain(enterDistance(this.lhsBase, this.rhsBase, Integer.MAX_VALUE), true);
+    }
+
+    private double drain(final double initial, final boolean distance) {
+        double total = initial;
+        while (this.top > 0) {
+            final int frame = this.top - 1;
+            if (this.matchTop > 0 && topMatching().frame == frame) {
+                final int unmatched = stepMatching();
+                if (unmatched < 0) {
+                    continue;
+                }
+                if (this.matchTop > 0) {
+                    if (unmatched > 0) {
+                        reject();
+                    }
+                } else if (!distance) {
+                    if (unmatched > 0) {
+                        return 1D;
+                    }
+                } else {
+                    total += unmatched;
+                }
+                continue;
+            }
+            final int index = this.cursors[frame];
+            if (index == this.sizes[frame]) {
+                this.top--;
+                continue;
+            }
+            this.cursors[frame] = index + 1;
+            final int lhsSlot = this.lhsFrames[frame] + index * SLOT_SIZE;
+            final int rhsSlot = this.rhsFrames[frame] + index * SLOT_SIZE;
+            if (distance && this.matchTop == 0) {
+                total += enterDistance(lhsSlot, rhsSlot, Integer.MAX_VALUE);
+            } else if (!enterEquals(lhsSlot, rhsSlot)) {
+                if (this.matchTop == 0) {
+                    return 1D;
+                }
+                reject();
+            }
+        }
+        return total;
+    }
+
+    private boolean enterEquals(final int lhsSlot, final int rhsSlot) {
+        final byte lhsKind = this.lhs.get(lhsSlot);
+        final byte rhsKind = this.rhs.get(rhsSlot);
+        if (lhsKind != SnapshotArena.SLOT_REFERENCE || rhsKind != SnapshotArena.SLOT_REFERENCE) {
+            if (lhsKind >= 0 && rhsKind >= 0) {
+                return lhsKind == rhsKind && this.lhs.getLong(lhsSlot + 1) == this.rhs.getLong(rhsSlot + 1);
+            }
+            return lhsKind == rhsKind;
+        }
+        final int lhsRecord = this.lhsBase + (int) this.lhs.getLong(lhsSlot + 1);
+        final int rhsRecord = this.rhsBase + (int) this.rhs.getLong(rhsSlot + 1);
+        final byte tag = this.lhs.get(lhsRecord);
+        if (tag != this.rhs.get(rhsRecord)) {
+            return false;
+        }
+        switch (tag) {
+            case WireFormat.STRING:
+                return stringMismatches(lhsRecord, rhsRecord) == 0;
+            case WireFormat.VALUE:
+                return valuesEqual(lhsRecord, rhsRecord);
+            case WireFormat.PRIMITIVE_ARRAY:
+                return this.lhs.get(lhsRecord + 1) == this.rhs.get(rhsRecord + 1)
+                        && this.lhs.getInt(lhsRecord + 2) == this.rhs.getInt(rhsRecord + 2)
+                        && primitiveMismatches(lhsRecord, rhsRecord) == 0;
+            case WireFormat.WRAPPER_ARRAY:
+                return this.lhs.getInt(lhsRecord + 2) == this.rhs.getInt(rhsRecord + 2)
+                        && wrapperMismatches(lhsRecord, rhsRecord, false) == 0;
+            case WireFormat.ENUM:
+                return enumsEqual(lhsRecord, rhsRecord);
+            default:
+                break;
+        }
+
+        final int paired = this.pairs.get(lhsRecord);
+        if (paired >= 0) {
+            return paired == rhsRecord;
+        }
+        if (this.rhsVisited.get(rhsRecord) >= 0) {
+            return false;
+        }
+        pair(lhsRecord, rhsRecord);
+
+        if (!typesEqual(lhsRecord, rhsRecord)) {
+            return false;
+        }
+        if (tag == WireFormat.HASH_COLLECTION) {
+            if (this.lhs.getInt(lhsRecord + 6) != this.rhs.getInt(rhsRecord + 6)) {
+                return false;
+            }
+            startMatching(lhsRecord, rhsRecord, 0);
+            return true;
+        }
+        if (this.lhs.getInt(lhsRecord + 5) != this.rhs.getInt(rhsRecord + 5)) {
+            return false;
+        }
+        push(lhsRecord, rhsRecord, this.lhs.getInt(lhsRecord + 5));
+        return true;
+    }
+
+    private double enterDistance(final int lhsSlot, final int rhsSlot, final int limit) {
+        final byte lhsKind = this.lhs.get(lhsSlot);
+        final byte rhsKind = this.rhs.get(rhsSlot);
+        if (lhsKind != SnapshotArena.SLOT_REFERENCE || rhsKind != SnapshotArena.SLOT_REFERENCE) {
+            if (lhsKind >= 0 && rhsKind >= 0) {
+                return lhsKind == rhsKind && this.lhs.getLong(lhsSlot + 1) == this.rhs.getLong(rhsSlot + 1) ? 0D : 1D;
+            }
+            return lhsKind == rhsKind ? 0D : 1D;
+        }
+        if (isSameRecord(lhsSlot, rhsSlot)) {
+            return 0D;
+        }
+        final int lhsRecord = this.lhsBase + (int) this.lhs.getLong(lhsSlot + 1);
+        final int rhsRecord = this.rhsBase + (int) this.rhs.getLong(rhsSlot + 1);
+        final byte tag = this.lhs.get(lhsRecord);
+        if (tag != this.rhs.get(rhsRecord)) {
+            return 1D;
+        }
+        switch (tag) {
+            case WireFormat.STRING:
+                return stringMismatches(lhsRecord, rhsRecord);
+            case WireFormat.VALUE:
+                return valuesEqual(lhsRecord, rhsRecord) ? 0D : 1D;
+            case WireFormat.PRIMITIVE_ARRAY:
+                if (this.lhs.get(lhsRecord + 1) != this.rhs.get(rhsRecord + 1)
+                        || this.lhs.getInt(lhsRecord + 2) != this.rhs.getInt(rhsRecord + 2)) {
+                    return 1D;
+                }
+                return primitiveMismatches(lhsRecord, rhsRecord);
+            case WireFormat.WRAPPER_ARRAY:
+                if (this.lhs.get(lhsRecord + 1) != this.rhs.get(rhsRecord + 1)
+                        || this.lhs.getInt(lhsRecord + 2) != this.rhs.getInt(rhsRecord + 2)) {
+                    return 1D;
+                }
+                return wrapperMismatches(lhsRecord, rhsRecord, true);
+            case WireFormat.ENUM:
+                return enumsEqual(lhsRecord, rhsRecord) ? 0D : 1D;
+            default:
+                break;
+        }
+
+        final int paired = this.pairs.get(lhsRecord);
+        if (paired >= 0) {
+            return paired == rhsRecord ? 0D : 1D;
+        }
+        if (this.rhsVisited.get(rhsRecord) >= 0) {
+            return 1D;
+        }
+        pair(lhsRecord, rhsRecord);
+
+        if (!typesEqual(lhsRecord, rhsRecord)) {
+            return 1D;
+        }
+        if (tag == WireFormat.HASH_COLLECTION) {
+            if (this.lhs.getInt(lhsRecord + 6) != this.rhs.getInt(rhsRecord + 6)) {
+                return 1D;
+            }
+            startMatching(lhsRecord, rhsRecord, limit);
+            return 0D;
+        }
+        if (this.lhs.getInt(lhsRecord + 5) != this.rhs.getInt(rhsRecord + 5)) {
+            return 1D;
+        }
+        push(lhsRecord, rhsRecord, this.lhs.getInt(lhsRecord + 5));
+        return 0D;
+    }
+
+    private boolean typesEqual(final int lhsRecord, final int rhsRecord) {
+        return this.lhsTypes.applyAsInt(this.lhs.getInt(lhsRecord + 1))
+                == this.rhsTypes.applyAsInt(this.rhs.getInt(rhsRecord + 1));
+    }
+
+    private boolean isSameRecord(final int lhsSlot, final int rhsSlot) {
+        return this.lhs == this.rhs
+                && this.lhs.get(lhsSlot) == SnapshotArena.SLOT_REFERENCE
+                && this.rhs.get(rhsSlot) == SnapshotArena.SLOT_REFERENCE
+                && this.lhsBase + this.lhs.getLong(lhsSlot + 1) == this.rhsBase + this.rhs.getLong(rhsSlot + 1);
+    }
+
+    private void push(final int lhsRecord, final int rhsRecord, final int size) {
+        final int frame = this.top;
+        if (frame == this.lhsFrames.length) {
+            final int capacity = frame << 1;
+            this.lhsFrames = Arrays.copyOf(this.lhsFrames, capacity);
+            this.rhsFrames = Arrays.copyOf(this.rhsFrames, capacity);
+            this.cursors = Arrays.copyOf(this.cursors, capacity);
+            this.sizes = Arrays.copyOf(this.sizes, capacity);
+        }
+        this.lhsFrames[frame] = SnapshotArena.slotsOf(this.lhs, lhsRecord);
+        this.rhsFrames[frame] = SnapshotArena.slotsOf(this.rhs, rhsRecord);
+        this.cursors[frame] = 0;
+        this.sizes[frame] = size;
+        this.top = frame + 1;
+    }
+
+    private void pair(final int lhsRecord, final int rhsRecord) {
+        this.pairs.put(lhsRecord, rhsRecord);
+        this.rhsVisited.put(rhsRecord, 0);
+        if (this.matchTop > 0) {
+            if (this.undoTop == this.undoLog.length) {
+                this.undoLog = Arrays.copyOf(this.undoLog, this.undoTop << 1);
+            }
+            this.undoLog[this.undoTop++] = lhsRecord;
+        }
+    }
+
+    private void undo(final int mark) {
+        while (this.undoTop > mark) {
+            this.rhsVisited.remove(this.pairs.remove(this.undoLog[--this.undoTop]));
+        }
+    }
+
+    private void startMatching(final int lhsRecord, final int rhsRecord, final int limit) {
+        final int arity = this.lhs.get(lhsRecord + 5);
+        final int size = this.lhs.getInt(lhsRecord + 6) / arity;
+        if (size == 0) {
+            return;
+        }
+        push(lhsRecord, rhsRecord, 0);
+        final int frame = this.top - 1;
+        if (this.matchTop == this.matchings.length) {
+            this.matchings = Arrays.copyOf(this.matchings, this.matchTop << 1);
+        }
+        Matching matching = this.matchings[this.matchTop];
+        if (matching == null) {
+            matching = new Matching();
+            this.matchings[this.matchTop] = matching;
+        }
+        this.matchTop++;
+        matching.frame = frame;
+        matching.lhsHashes = lhsRecord + 10;
+        matching.rhsHashes = rhsRecord + 10;
+        matching.arity = arity;
+        matching.size = size;
+        matching.entry = 0;
+        matching.unmatched = 0;
+        matching.limit = limit;
+        matching.runEnd = 0;
+        if (matching.used == null || matching.used.length < size) {
+            matching.used = new boolean[size];
+        } else {
+            Arrays.fill(matching.used, 0, size, false);
+        }
+        seekRun(matching, this.lhs.getInt(matching.lhsHashes));
+        this.cursors[frame] = -1;
+    }
+
+    private int stepMatching() {
+        final Matching matching = topMatching();
+        final int frame = matching.frame;
+        final int element = this.cursors[frame];
+        if (element < 0) {
+            int candidate = matching.candidate;
+            while (candidate < matching.runEnd && matching.used[candidate]) {
+                candidate++;
+            }
+            if (candidate == matching.runEnd) {
+                if (++matching.unmatched > matching.limit) {
+                    return finishMatching(matching);
+                }
+                return nextEntry(matching);
+            }
+            matching.candidate = candidate;
+            matching.mark = this.undoTop;
+            this.cursors[frame] = 0;
+            return -1;
+        }
+        if (element == matching.arity) {
+            matching.used[matching.candidate] = true;
+            return nextEntry(matching);
+        }
+        this.cursors[frame] = element + 1;
+        if (!enterEquals(this.lhsFrames[frame] + (matching.entry * matching.arity + element) * SLOT_SIZE,
+                this.rhsFrames[frame] + (matching.candidate * matching.arity + element) * SLOT_SIZE)) {
+            reject();
+        }
+        return -1;
+    }
+
+    private int nextEntry(final Matching matching) {
+        final int entry = ++matching.entry;
+        if (entry == matching.size) {
+            return finishMatching(matching);
+        }
+        final int hash = this.lhs.getInt(matching.lhsHashes + entry * 4);
+        if (hash != this.lhs.getInt(matching.lhsHashes + (entry - 1) * 4)) {
+            seekRun(matching, hash);
+        } else {
+            matching.candidate = matching.runStart;
+        }
+        this.cursors[matching.frame] = -1;
+        return -1;
+    }
+
+    private void seekRun(final Matching matching, final int hash) {
+        int start = matching.runEnd;
+        while (start < matching.size && this.rhs.getInt(matching.rhsHashes + start * 4) < hash) {
+            start++;
+        }
+        int end = start;
+        while (end < matching.size && this.rhs.getInt(matching.rhsHashes + end * 4) == hash) {
+            end++;
+        }
+        matching.runStart = start;
+        matching.runEnd = end;
+        matching.candidate = start;
+    }
+
+    private int finishMatching(final Matching matching) {
+        this.matchTop--;
+        this.top--;
+        if (this.matchTop == 0) {
+            this.undoTop = 0;
+        }
+        return matching.unmatched;
+    }
+
+    private void reject() {
+        final Matching matching = topMatching();
+        this.top = matching.frame + 1;
+        undo(matching.mark);
+        matching.candidate++;
+        this.cursors[matching.frame] = -1;
+    }
+
+    private Matching topMatching() {
+        return this.matchings[this.matchTop - 1];
+    }
+
+    private int stringMismatches(final int lhsRecord, final int rhsRecord) {
+        final int lhsLength = this.lhs.getInt(lhsRecord + 1);
+        final int rhsLength = this.rhs.getInt(rhsRecord + 1);
+        final int common = Math.min(lhsLength, rhsLength);
+        int count = Math.max(lhsLength, rhsLength) - common;
+        for (int i = 0; i < common; i++) {
+            if (this.lhs.getChar(lhsRecord + 5 + i * 2) != this.rhs.getChar(rhsRecord + 5 + i * 2)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int primitiveMismatches(final int lhsRecord, final int rhsRecord) {
+        final int width = WireFormat.widthOf(this.lhs.get(lhsRecord + 1));
+        final int length = this.lhs.getInt(lhsRecord + 2);
+        final int lhsData = lhsRecord + 6;
+        final int rhsData = rhsRecord + 6;
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            final int offset = i * width;
+            final boolean equal;
+            switch (width) {
+                case 1:
+                    equal = this.lhs.get(lhsData + offset) == this.rhs.get(rhsData + offset);
+                    break;
+                case 2:
+                    equal = this.lhs.getShort(lhsData + offset) == this.rhs.getShort(rhsData + offset);
+                    break;
+                case 4:
+                    equal = this.lhs.getInt(lhsData + offset) == this.rhs.getInt(rhsData + offset);
+                    break;
+                default:
+                    equal = this.lhs.getLong(lhsData + offset) == this.rhs.getLong(rhsData + offset);
+            }
+            if (!equal) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int wrapperMismatches(final int lhsRecord, final int rhsRecord, final boolean sameKind) {
+        final boolean kindsMatch = sameKind || this.lhs.get(lhsRecord + 1) == this.rhs.get(rhsRecord + 1);
+        final int length = this.lhs.getInt(lhsRecord + 2);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            final int lhsElement = lhsRecord + 6 + i * SLOT_SIZE;
+            final int rhsElement = rhsRecord + 6 + i * SLOT_SIZE;
+            final byte lhsPresent = this.lhs.get(lhsElement);
+            if (lhsPresent != this.rhs.get(rhsElement)
+                    || (lhsPresent != 0 && (!kindsMatch
+                    || this.lhs.getLong(lhsElement + 1) != this.rhs.getLong(rhsElement + 1)))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean enumsEqual(final int lhsRecord, final int rhsRecord) {
+        final int length = this.lhs.getInt(lhsRecord + 5);
+        if (!typesEqual(lhsRecord, rhsRecord) || length != this.rhs.getInt(rhsRecord + 5)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.lhs.getChar(lhsRecord + 9 + i * 2) != this.rhs.getChar(rhsRecord + 9 + i * 2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean valuesEqual(final int lhsRecord, final int rhsRecord) {
+        final int length = this.lhs.getInt(lhsRecord + 1);
+        if (length == this.rhs.getInt(rhsRecord + 1)) {
+            int i = 0;
+            while (i < length && this.lhs.get(lhsRecord + 5 + i) == this.rhs.get(rhsRecord + 5 + i)) {
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        if (this.lhsValues == null) {
+            this.lhsValues = new HashMap<>();
+            this.rhsValues = new HashMap<>();
+        }
+        final Object lhsValue = valueOf(this.lhs, lhsRecord, this.lhsValues);
+        final Object rhsValue = valueOf(this.rhs, rhsRecord, this.rhsValues);
+        return lhsValue.getClass() == rhsValue.getClass() && lhsValue.equals(rhsValue);
+    }
+
+    private static Object valueOf(final ByteBuffer in, final int record, final Map<Integer, Object> values) {
+        return values.computeIfAbsent(record, key -> {
+            final byte[] bytes = new byte[in.getInt(record + 1)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = in.get(record + 5 + i);
+            }
+            return SnapshotArena.deserialize(bytes);
+        });
+    }
+
+    private static final class Matching {
+        int frame;
+
+        int lhsHashes;
+
+        int rhsHashes;
+
+        int arity;
+
+        int size;
+
+        int entry;
+
+        int candidate;
+
+        int runStart;
+
+        int runEnd;
+
+        int unmatched;
+
+        int limit;
+
+        int mark;
+
+        boolean[] used;
+    }
+
+    private static final class IntMap {
+        private int[] keys = new int[16];
+
+        private int[] values = new int[16];
+
+        private int size;
+
+        int get(final int key) {
+            final int mask = this.keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                final int k = this.keys[i];
+                if (k == key + 1) {
+                    return this.values[i];
+                }
+                if (k == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(final int key, final int value) {
+            if ((this.size + 1) * 2 > this.keys.length) {
+                rehash();
+            }
+            final int mask = this.keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                final int k = this.keys[i];
+                if (k == key + 1) {
+                    this.values[i] = value;
+                    return;
+                }
+                if (k == 0) {
+                    this.keys[i] = key + 1;
+                    this.values[i] = value;
+                    this.size++;
+                    return;
+                }
+            }
+        }
+
+        int remove(final int key) {
+            final int mask = this.keys.length - 1;
+            int hole = mix(key) & mask;
+            while (this.keys[hole] != key + 1) {
+                if (this.keys[hole] == 0) {
+                    return -1;
+                }
+                hole = (hole + 1) & mask;
+            }
+            final int value = this.values[hole];
+            for (int i = (hole + 1) & mask; this.keys[i] != 0; i = (i + 1) & mask) {
+                final int home = mix(this.keys[i] - 1) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    this.keys[hole] = this.keys[i];
+                    this.values[hole] = this.values[i];
+                    hole = i;
+                }
+            }
+            this.keys[hole] = 0;
+            this.size--;
+            return value;
+        }
+
+        private void rehash() {
+            final int[] oldKeys = this.keys;
+            final int[] oldValues = this.values;
+            this.keys = new int[oldKeys.length << 1];
+            this.values = new int[oldKeys.length << 1];
+            this.size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i] - 1, oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(final int key) {
+            final int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class CanonicalTable {
+    private final ReferenceQueue<Proxy> queue = new ReferenceQueue<>();
+
+    private Entry[] table = new Entry[1024];
+
+    private int size;
+
+    Proxy canonicalize(final Proxy root) {
+        if (!(root instanceof AbstractCompositeObjectProxy)) {
+            return internTerminal(root);
+        }
+        final AbstractCompositeObjectProxy rootObj = (AbstractCompositeObjectProxy) root;
+        if (rootObj.canonical) {
+            return root;
+        }
+        final Map<Proxy, Proxy> done = new IdentityHashMap<>();
+        final Map<Proxy, Boolean> open = new IdentityHashMap<>();
+        final Map<Proxy, Boolean> adopted = new IdentityHashMap<>();
+        final List<AbstractCompositeObjectProxy> nodes = new ArrayList<>();
+        int[] cursors = new int[16];
+        boolean[] acyclic = new boolean[16];
+        nodes.add(rootObj);
+        open.put(rootObj, Boolean.TRUE);
+        acyclic[0] = true;
+        while (true) {
+            final int frame = nodes.size() - 1;
+            final AbstractCompositeObjectProxy node = nodes.get(frame);
+            final List<Proxy> values = node.values;
+            final int index = cursors[frame];
+            if (index == values.size()) {
+                nodes.remove(frame);
+                open.remove(node);
+                final Proxy result = finish(node, acyclic[frame], adopted);
+                done.put(node, result);
+                if (frame == 0) {
+                    return result;
+                }
+                replace(nodes.get(frame - 1).values, cursors[frame - 1] - 1, result);
+                acyclic[frame - 1] &= isCanonical(result);
+                continue;
+            }
+            cursors[frame] = index + 1;
+            if (values instanceof Slots && ((Slots) values).isPrimitive(index)) {
+                continue;
+            }
+            final Proxy child = values.get(index);
+            if (!(child instanceof AbstractCompositeObjectProxy)) {
+                replace(values, index, internTerminal(child));
+                continue;
+            }
+            if (isCanonical(child)) {
+                adopted.put(child, Boolean.TRUE);
+                continue;
+            }
+            if (open.containsKey(child)) {
+                acyclic[frame] = false;
+                continue;
+            }
+            final Proxy finished = done.get(child);
+            if (finished != null) {
+                replace(values, index, finished);
+                acyclic[frame] &= isCanonical(finished);
+                continue;
+            }
+            if (frame + 1 == cursors.length) {
+                cursors = Arrays.copyOf(cursors, cursors.length << 1);
+                acyclic = Arrays.copyOf(acyclic, acyclic.length << 1);
+            }
+            cursors[frame + 1] = 0;
+            acyclic[frame + 1] = true;
+            nodes.add((AbstractCompositeObjectProxy) child);
+            open.put(child, Boolean.TRUE);
+        }
+    }
+
+    synchronized int size() {
+        expunge();
+        return this.size;
+    }
+
+    private Proxy finish(final AbstractCompositeObjectProxy node,
+                         final boolean acyclic,
+                         final Map<Proxy, Boolean> adopted) {
+        if (node instanceof HashCollectionProxy) {
+            ((HashCollectionProxy) node).seal();
+        }
+        if (!acyclic) {
+            return node;
+        }
+        final Proxy canonical = intern(node, node.hashCode());
+        return adopted.put(canonical, Boolean.TRUE) == null ? canonical : node;
+    }
+
+    private Proxy internTerminal(final Proxy proxy) {
+        if (proxy == Null.V || proxy == Skipped.V) {
+            return proxy;
+        }
+        return intern(proxy, proxy.hashCode());
+    }
+
+    private synchronized Proxy intern(final Proxy proxy, final int hash) {
+        expunge();
+        final Entry[] table = this.table;
+        final int bucket = hash & (table.length - 1);
+        for (Entry entry = table[bucket]; entry != null; entry = entry.next) {
+            if (entry.hash == hash) {
+                final Proxy existing = entry.get();
+                if (existing != null && sameContent(existing, proxy)) {
+                    return existing;
+                }
+            }
+        }
+        if (proxy instanceof AbstractCompositeObjectProxy) {
+            ((AbstractCompositeObjectProxy) proxy).canonicalize(hash);
+        }
+        table[bucket] = new Entry(proxy, hash, this.queue, table[bucket]);
+        if (++this.size > table.length - (table.length >>> 2)) {
+            resize();
+        }
+        return proxy;
+    }
+
+    private void resize() {
+        final Entry[] old = this.table;
+        final Entry[] table = new Entry[old.length << 1];
+        for (Entry entry : old) {
+            while (entry != null) {
+                final Entry next = entry.next;
+                final int bucket = entry.hash & (table.length - 1);
+                entry.next = table[bucket];
+                table[bucket] = entry;
+                entry = next;
+            }
+        }
+        this.table = table;
+    }
+
+    private void expunge() {
+        Object cleared;
+        while ((cleared = this.queue.poll()) != null) {
+            final Entry entry = (Entry) cleared;
+            final int bucket = entry.hash & (this.table.length - 1);
+            Entry previous = null;
+            for (Entry e = this.table[bucket]; e != null; e = e.next) {
+                if (e == entry) {
+                    if (previous == null) {
+                        this.table[bucket] = e.next;
+                    } else {
+                        previous.next = e.next;
+                    }
+                    this.size--;
+                    break;
+                }
+                previous = e;
+            }
+        }
+    }
+
+    private static boolean sameContent(final Proxy lhs, final Proxy rhs) {
+        if (lhs.getClass() != rhs.getClass()) {
+            return false;
+        }
+        if (!(lhs instanceof AbstractCompositeObjectProxy)) {
+            return lhs.equals(rhs);
+        }
+        final AbstractCompositeObjectProxy lhsObj = (AbstractCompositeObjectProxy) lhs;
+        final AbstractCompositeObjectProxy rhsObj = (AbstractCompositeObjectProxy) rhs;
+        if (lhsObj.typeId != rhsObj.typeId || lhsObj.values.size() != rhsObj.values.size()) {
+            return false;
+        }
+        if (lhs instanceof HashCollectionProxy
+                && ((HashCollectionProxy) lhs).arity != ((HashCollectionProxy) rhs).arity) {
+            return false;
+        }
+        final List<Proxy> lhsValues = lhsObj.values;
+        final List<Proxy> rhsValues = rhsObj.values;
+        if (lhsValues instanceof Slots || rhsValues instanceof Slots) {
+            if (!Slots.isPacked(lhsValues, rhsValues)
+                    || !Arrays.equals(((Slots) lhsValues).bits, ((Slots) rhsValues).bits)) {
+                return false;
+            }
+            final Proxy[] lhsReferences = ((Slots) lhsValues).references;
+            final Proxy[] rhsReferences = ((Slots) rhsValues).references;
+            for (int i = 0; i < lhsReferences.length; i++) {
+                if (lhsReferences[i] != rhsReferences[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < lhsValues.size(); i++) {
+            if (lhsValues.get(i) != rhsValues.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCanonical(final Proxy proxy) {
+        return !(proxy instanceof AbstractCompositeObjectProxy) || ((AbstractCompositeObjectProxy) proxy).canonical;
+    }
+
+    private static void replace(final List<Proxy> values, final int index, final Proxy proxy) {
+        if (values.get(index) == proxy) {
+            return;
+        }
+        if (values instanceof Slots) {
+            ((Slots) values).setReference(index, proxy);
+        } else {
+            values.set(index, proxy);
+        }
+    }
+
+    private static final class Entry extends WeakReference<Proxy> {
+        final int hash;
+
+        Entry next;
+
+        Entry(final Proxy proxy, final int hash, final ReferenceQueue<Proxy> queue, final Entry next) {
+            super(proxy, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}
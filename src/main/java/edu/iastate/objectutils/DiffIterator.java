@@ -0,0 +1,400 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+final class DiffIterator implements Iterator<Difference> {
+    private static final String ROOT = "root";
+
+    private static final byte COMPOSITE = 0;
+
+    private static final byte PRIMITIVE_ARRAY = 1;
+
+    private static final byte WRAPPER_ARRAY = 2;
+
+    private static final byte ENTRIES = 3;
+
+    private static final String[] PRIMITIVE_ARRAY_TYPES = {
+            "boolean[]", "byte[]", "char[]", "short[]", "int[]", "long[]", "float[]", "double[]"
+    };
+
+    private final ObjectUtils config;
+
+    private final Map<Proxy, Proxy> pairs;
+
+    private final Set<Proxy> rhsVisited;
+
+    private final ArrayDeque<Frame> stack;
+
+    private Proxy lhsRoot;
+
+    private Proxy rhsRoot;
+
+    private Difference next;
+
+    DiffIterator(final ObjectUtils config, final Proxy lhsRoot, final Proxy rhsRoot) {
+        this.config = config;
+        this.pairs = new IdentityHashMap<>();
+        this.rhsVisited = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.stack = new ArrayDeque<>();
+        this.lhsRoot = lhsRoot;
+        this.rhsRoot = rhsRoot;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null) {
+            this.next = advance();
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public Difference next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Difference difference = this.next;
+        this.next = null;
+        return difference;
+    }
+
+    private Difference advance() {
+        if (this.lhsRoot != null) {
+            final Difference difference = compare(this.lhsRoot, this.rhsRoot, null, -1);
+            this.lhsRoot = null;
+            this.rhsRoot = null;
+            if (difference != null) {
+                return difference;
+            }
+        }
+        while (!this.stack.isEmpty()) {
+            final Frame frame = this.stack.peek();
+            if (frame.cursor == frame.size) {
+                this.stack.pop();
+                continue;
+            }
+            final int index = frame.cursor++;
+            final Difference difference;
+            if (frame.kind == COMPOSITE) {
+                final AbstractCompositeObjectProxy lhs = (AbstractCompositeObjectProxy) frame.lhs;
+                final AbstractCompositeObjectProxy rhs = (AbstractCompositeObjectProxy) frame.rhs;
+                difference = compare(lhs.values.get(index), rhs.values.get(index), frame, index);
+            } else if (frame.kind == ENTRIES) {
+                final Proxy lhs = frame.lhsEntries[index];
+                final Proxy rhs = frame.rhsEntries[index];
+                difference = lhs == null || rhs == null
+                        ? new Difference(pathOf(frame, index), describe(lhs), describe(rhs))
+                        : compare(lhs, rhs, frame, index);
+            } else {
+                final Object lhs = elementOf(frame.kind, frame.lhs, index);
+                final Object rhs = elementOf(frame.kind, frame.rhs, index);
+                difference = Objects.equals(lhs, rhs) ? null : new Difference(pathOf(frame, index), lhs, rhs);
+            }
+            if (difference != null) {
+                return difference;
+            }
+        }
+        return null;
+    }
+
+    private Difference compare(final Proxy lhs, final Proxy rhs, final Frame parent, final int slot) {
+        if (lhs == rhs && lhs instanceof TerminalProxy) {
+            return null;
+        }
+        if (lhs.getClass() != rhs.getClass()) {
+            return new Difference(pathOf(parent, slot), describe(lhs), describe(rhs));
+        }
+        if (lhs instanceof Skipped || lhs instanceof Null) {
+            return null;
+        }
+        if (lhs instanceof PrimitiveOrWrapperProxy
+                || lhs instanceof StringProxy
+                || lhs instanceof ValueProxy
+                || lhs instanceof EnumProxy) {
+            return lhs.equals(rhs) ? null : new Difference(pathOf(parent, slot), describe(lhs), describe(rhs));
+        }
+        if (lhs instanceof PrimitiveArrayProxy) {
+            final PrimitiveArrayProxy lhsArray = (PrimitiveArrayProxy) lhs;
+            final PrimitiveArrayProxy rhsArray = (PrimitiveArrayProxy) rhs;
+            if (lhsArray.length() != rhsArray.length()) {
+                return new Difference(pathOf(parent, slot) + ".length", lhsArray.length(), rhsArray.length());
+            }
+            if (!lhsArray.equals(rhsArray)) {
+                this.stack.push(new Frame(parent, slot, PRIMITIVE_ARRAY, lhs, rhs, lhsArray.length(), null));
+            }
+            return null;
+        }
+        if (lhs instanceof PrimitiveWrapperArrayProxy) {
+            final Object[] lhsArray = ((PrimitiveWrapperArrayProxy) lhs).array;
+            final Object[] rhsArray = ((PrimitiveWrapperArrayProxy) rhs).array;
+            if (lhsArray.getClass() != rhsArray.getClass()) {
+                return new Difference(pathOf(parent, slot), describe(lhs), describe(rhs));
+            }
+            if (lhsArray.length != rhsArray.length) {
+                return new Difference(pathOf(parent, slot) + ".length", lhsArray.length, rhsArray.length);
+            }
+            if (!lhs.equals(rhs)) {
+                this.stack.push(new Frame(parent, slot, WRAPPER_ARRAY, lhs, rhs, lhsArray.length, null));
+            }
+            return null;
+        }
+        final Proxy paired = this.pairs.get(lhs);
+        if (paired != null) {
+            return paired == rhs ? null : new Difference(pathOf(parent, slot), describe(lhs), describe(rhs));
+        }
+        if (!this.rhsVisited.add(rhs)) {
+            return new Difference(pathOf(parent, slot), describe(lhs), describe(rhs));
+        }
+        this.pairs.put(lhs, rhs);
+        final AbstractCompositeObjectProxy lhsObj = (AbstractCompositeObjectProxy) lhs;
+        final AbstractCompositeObjectProxy rhsObj = (AbstractCompositeObjectProxy) rhs;
+        final int size = lhsObj.values.size();
+        if (lhsObj.typeId != rhsObj.typeId) {
+            return new Difference(pathOf(parent, slot), describe(lhs), describe(rhs));
+        }
+        if (lhs instanceof HashCollectionProxy) {
+            final HashCollectionProxy lhsSet = (HashCollectionProxy) lhs;
+            final HashCollectionProxy rhsSet = (HashCollectionProxy) rhs;
+            if (lhsSet.arity != rhsSet.arity) {
+                return new Difference(pathOf(parent, slot), describe(lhs), describe(rhs));
+            }
+            if (size != rhsObj.values.size() || ObjectUtils.unmatchedEntries(lhsSet, rhsSet, 0) != 0) {
+                pushEntries(parent, slot, lhsSet, rhsSet);
+            }
+            return null;
+        }
+        if (size != rhsObj.values.size()) {
+            if (lhs instanceof ObjectArrayProxy) {
+                return new Difference(pathOf(parent, slot) + ".length", size, rhsObj.values.size());
+            }
+            return new Difference(pathOf(parent, slot), describe(lhs), describe(rhs));
+        }
+        final String[] fieldNames = lhs instanceof ObjectProxy ? this.config.fieldNamesOf(lhsObj.typeId, size) : null;
+        this.stack.push(new Frame(parent, slot, COMPOSITE, lhs, rhs, size, fieldNames));
+        return null;
+    }
+
+    private void pushEntries(final Frame parent,
+                             final int slot,
+                             final HashCollectionProxy lhs,
+                             final HashCollectionProxy rhs) {
+        lhs.ensureSealed();
+        rhs.ensureSealed();
+        final int arity = lhs.arity;
+        final boolean[] lhsMatched = new boolean[lhs.size()];
+        final boolean[] rhsMatched = new boolean[rhs.size()];
+        int run = 0;
+        for (int i = 0; i < lhsMatched.length; i++) {
+            final int hash = lhs.entryHashes[i];
+            while (run < rhsMatched.length && rhs.entryHashes[run] < hash) {
+                run++;
+            }
+            for (int j = run; j < rhsMatched.length && rhs.entryHashes[j] == hash; j++) {
+                if (!rhsMatched[j] && entriesEqual(lhs, i, rhs, j, arity)) {
+                    lhsMatched[i] = true;
+                    rhsMatched[j] = true;
+                    break;
+                }
+            }
+        }
+        final List<Proxy> lhsEntries = new ArrayList<>();
+        final List<Proxy> rhsEntries = new ArrayList<>();
+        final List<String> labels = new ArrayList<>();
+        for (int i = 0; i < lhsMatched.length; i++) {
+            if (lhsMatched[i]) {
+                continue;
+            }
+            final Proxy key = lhs.values.get(i * arity);
+            Proxy counterpart = null;
+            if (arity == 2) {
+                for (int j = 0; j < rhsMatched.length && counterpart == null; j++) {
+                    if (!rhsMatched[j] && keysEqual(key, rhs.values.get(j * arity))) {
+                        rhsMatched[j] = true;
+                        counterpart = rhs.values.get(j * arity + 1);
+                    }
+                }
+            }
+            lhsEntries.add(arity == 2 ? lhs.values.get(i * arity + 1) : key);
+            rhsEntries.add(counterpart);
+            labels.add(String.valueOf(describe(key)));
+        }
+        for (int j = 0; j < rhsMatched.length; j++) {
+            if (!rhsMatched[j]) {
+                final Proxy key = rhs.values.get(j * arity);
+                lhsEntries.add(null);
+                rhsEntries.add(arity == 2 ? rhs.values.get(j * arity + 1) : key);
+                labels.add(String.valueOf(describe(key)));
+            }
+        }
+        this.stack.push(new Frame(parent, slot, lhs, rhs, lhsEntries.toArray(new Proxy[0]),
+                rhsEntries.toArray(new Proxy[0]), labels.toArray(new String[0])));
+    }
+
+    private static boolean entriesEqual(final HashCollectionProxy lhs,
+                                 final int lhsEntry,
+                                 final HashCollectionProxy rhs,
+                                 final int rhsEntry,
+                                 final int arity) {
+        for (int k = 0; k < arity; k++) {
+            final Proxy lhsElement = lhs.values.get(lhsEntry * arity + k);
+            if (!ObjectUtils.structurallyEquals(lhsElement, rhs.values.get(rhsEntry * arity + k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean keysEqual(final Proxy lhs, final Proxy rhs) {
+        return ObjectUtils.proxyHashCode(lhs) == ObjectUtils.proxyHashCode(rhs)
+                && ObjectUtils.structurallyEquals(lhs, rhs);
+    }
+
+    private static Object elementOf(final byte kind, final Proxy array, final int index) {
+        if (kind == PRIMITIVE_ARRAY) {
+            return ((PrimitiveArrayProxy) array).get(index);
+        }
+        return ((PrimitiveWrapperArrayProxy) array).array[index];
+    }
+
+    private static Object describe(final Proxy proxy) {
+        if (proxy == null || proxy == Null.V || proxy == Skipped.V) {
+            return null;
+        }
+        if (proxy instanceof PrimitiveOrWrapperProxy) {
+            final PrimitiveOrWrapperProxy primitive = (PrimitiveOrWrapperProxy) proxy;
+            return WireFormat.toWrapper(primitive.kind, primitive.bits);
+        }
+        if (proxy instanceof StringProxy) {
+            return ((StringProxy) proxy).value;
+        }
+        if (proxy instanceof ValueProxy) {
+            return ((ValueProxy) proxy).value;
+        }
+        if (proxy instanceof EnumProxy) {
+            return ((EnumProxy) proxy).constName;
+        }
+        if (proxy instanceof PrimitiveArrayProxy) {
+            return PRIMITIVE_ARRAY_TYPES[((PrimitiveArrayProxy) proxy).kind()];
+        }
+        if (proxy instanceof PrimitiveWrapperArrayProxy) {
+            return ((PrimitiveWrapperArrayProxy) proxy).array.getClass().getTypeName();
+        }
+        return TypeTable.nameOf(((AbstractCompositeObjectProxy) proxy).typeId);
+    }
+
+    private static String pathOf(final Frame frame, final int slot) {
+        final List<Frame> frames = new ArrayList<>();
+        for (Frame f = frame; f != null; f = f.parent) {
+            frames.add(f);
+        }
+        final StringBuilder path = new StringBuilder(ROOT);
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            final Frame f = frames.get(i);
+            appendSegment(path, f, i == 0 ? slot : frames.get(i - 1).slot);
+        }
+        return path.toString();
+    }
+
+    private static void appendSegment(final StringBuilder path, final Frame frame, final int slot) {
+        if (frame.labels != null) {
+            path.append('[').append(frame.labels[slot]).append(']');
+        } else if (frame.fieldNames != null) {
+            path.append('.').append(frame.fieldNames[slot]);
+        } else if (frame.lhs instanceof ObjectProxy) {
+            path.append(".#").append(slot);
+        } else {
+            path.append('[').append(slot).append(']');
+        }
+    }
+
+    private static final class Frame {
+        final Frame parent;
+
+        final int slot;
+
+        final byte kind;
+
+        final Proxy lhs;
+
+        final Proxy rhs;
+
+        final int size;
+
+        final String[] fieldNames;
+
+        final Proxy[] lhsEntries;
+
+        final Proxy[] rhsEntries;
+
+        final String[] labels;
+
+        int cursor;
+
+        Frame(final Frame parent,
+              final int slot,
+              final byte kind,
+              final Proxy lhs,
+              final Proxy rhs,
+              final int size,
+              final String[] fieldNames) {
+            this.parent = parent;
+            this.slot = slot;
+            this.kind = kind;
+            this.lhs = lhs;
+            this.rhs = rhs;
+            this.size = size;
+            this.fieldNames = fieldNames;
+            this.lhsEntries = null;
+            this.rhsEntries = null;
+            this.labels = null;
+        }
+
+        Frame(final Frame parent,
+              final int slot,
+              final Proxy lhs,
+              final Proxy rhs,
+              final Proxy[] lhsEntries,
+              final Proxy[] rhsEntries,
+              final String[] labels) {
+            this.parent = parent;
+            this.slot = slot;
+            this.kind = ENTRIES;
+            this.lhs = lhs;
+            this.rhs = rhs;
+            this.size = labels.length;
+            this.fieldNames = null;
+            this.lhsEntries = lhsEntries;
+            this.rhsEntries = rhsEntries;
+            this.labels = labels;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Objects;
+
+public final class Difference {
+    private final String path;
+
+    private final Object left;
+
+    private final Object right;
+
+    Difference(final String path, final Object left, final Object right) {
+        this.path = path;
+        this.left = left;
+        this.right = right;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public Object getLeft() {
+        return this.left;
+    }
+
+    public Object getRight() {
+        return this.right;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Difference)) {
+            return false;
+        }
+        final Difference that = (Difference) o;
+        return this.path.equals(that.path)
+                && Objects.equals(this.left, that.left)
+                && Objects.equals(this.right, that.right);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.path, this.left, this.right);
+    }
+
+    @Override
+    public String toString() {
+        return this.path + ": " + this.left + " != " + this.right;
+    }
+}
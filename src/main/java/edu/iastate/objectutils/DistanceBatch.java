@@ -0,0 +1,165 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+final class DistanceBatch {
+    private static final int TILE = 32;
+
+    private final ObjectUtils config;
+
+    private final Proxy[] snapshots;
+
+    private final double[] result;
+
+    private DistanceBatch(final ObjectUtils config, final Proxy[] snapshots, final double[] result) {
+        this.config = config;
+        this.snapshots = snapshots;
+        this.result = result;
+    }
+
+    static double[] oneToMany(final ObjectUtils config,
+                              final ForkJoinPool pool,
+                              final Object snapshot,
+                              final List<?> snapshots) {
+        final Proxy lhs = toProxy(snapshot);
+        final DistanceBatch batch = new DistanceBatch(config, toProxies(snapshots), new double[snapshots.size()]);
+        pool.invoke(batch.new Row(lhs, 0, snapshots.size()));
+        return batch.result;
+    }
+
+    static double[] matrix(final ObjectUtils config,
+                           final ForkJoinPool pool,
+                           final List<?> snapshots,
+                           final boolean upperTriangular) {
+        final int n = snapshots.size();
+        final long size = upperTriangular ? (long) n * (n - 1) / 2 : (long) n * n;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many snapshots for a single distance matrix: " + n);
+        }
+        final int tiles = (n + TILE - 1) / TILE;
+        final double[] result = new double[(int) size];
+        final DistanceBatch batch = new DistanceBatch(config, toProxies(snapshots), result);
+        pool.invoke(batch.new Tiles(upperTriangular, 0, tiles * (tiles + 1) / 2));
+        return result;
+    }
+
+    static int triangularIndex(final int n, final int i, final int j) {
+        return (int) ((long) i * n - (long) i * (i + 1) / 2 + (j - i - 1));
+    }
+
+    private static Proxy[] toProxies(final List<?> snapshots) {
+        final Proxy[] proxies = new Proxy[snapshots.size()];
+        for (int i = 0; i < proxies.length; i++) {
+            proxies[i] = toProxy(snapshots.get(i));
+        }
+        return proxies;
+    }
+
+    private static Proxy toProxy(final Object snapshot) {
+        if (!(snapshot instanceof Proxy)) {
+            throw new IllegalArgumentException("Not a snapshot produced by ObjectUtils.makeSerializable");
+        }
+        return (Proxy) snapshot;
+    }
+
+    private final class Row extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Proxy lhs;
+
+        private final int from;
+
+        private final int to;
+
+        Row(final Proxy lhs, final int from, final int to) {
+            this.lhs = lhs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > TILE) {
+                final int mid = (this.from + this.to) >>> 1;
+                invokeAll(new Row(this.lhs, this.from, mid), new Row(this.lhs, mid, this.to));
+                return;
+            }
+            for (int j = this.from; j < this.to; j++) {
+                result[j] = config.extendedHammingDistance(this.lhs, snapshots[j]);
+            }
+        }
+    }
+
+    private final class Tiles extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean upperTriangular;
+
+        private final int from;
+
+        private final int to;
+
+        Tiles(final boolean upperTriangular, final int from, final int to) {
+            this.upperTriangular = upperTriangular;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > 1) {
+                final int mid = (this.from + this.to) >>> 1;
+                invokeAll(new Tiles(this.upperTriangular, this.from, mid),
+                        new Tiles(this.upperTriangular, mid, this.to));
+                return;
+            }
+            int tileRow = 0;
+            int tile = this.from;
+            final int tiles = (snapshots.length + TILE - 1) / TILE;
+            while (tile >= tiles - tileRow) {
+                tile -= tiles - tileRow;
+                tileRow++;
+            }
+            computeTile(tileRow, tileRow + tile);
+        }
+
+        private void computeTile(final int tileRow, final int tileColumn) {
+            final int n = snapshots.length;
+            final int rowEnd = Math.min(n, (tileRow + 1) * TILE);
+            final int columnEnd = Math.min(n, (tileColumn + 1) * TILE);
+            for (int i = tileRow * TILE; i < rowEnd; i++) {
+                for (int j = Math.max(i + 1, tileColumn * TILE); j < columnEnd; j++) {
+                    final double distance = config.extendedHammingDistance(snapshots[i], snapshots[j]);
+                    if (this.upperTriangular) {
+                        result[triangularIndex(n, i, j)] = distance;
+                    } else {
+                        result[(int) ((long) i * n + j)] = distance;
+                        result[(int) ((long) j * n + i)] = distance;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -20,18 +20,27 @@ package edu.iastate.objectutils;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 class EnumProxy implements TerminalProxy {
     private static final long serialVersionUID = 1L;
 
-    final String typeName;
+    transient int typeId;
 
     final String constName;
 
     public EnumProxy(final Enum<?> val) {
-        this.typeName = val.getClass().getName();
+        this.typeId = TypeTable.idOf(val.getDeclaringClass());
         this.constName = val.name();
     }
 
+    EnumProxy(final int typeId, final String constName) {
+        this.typeId = typeId;
+        this.constName = constName;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -41,7 +50,22 @@ class EnumProxy implements TerminalProxy {
             return false;
         }
         final EnumProxy that = (EnumProxy) o;
-        return this.typeName.equals(that.typeName)
+        return this.typeId == that.typeId
                 && this.constName.equals(that.constName);
     }
+
+    @Override
+    public int hashCode() {
+        return 31 * TypeTable.nameOf(this.typeId).hashCode() + this.constName.hashCode();
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(TypeTable.nameOf(this.typeId));
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.typeId = TypeTable.idOf((String) in.readObject());
+    }
 }
@@ -0,0 +1,157 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+final class FieldLayout {
+    static final byte REFERENCE = -1;
+
+    private static final MethodType REFERENCE_GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType PRIMITIVE_GETTER = MethodType.methodType(long.class, Object.class);
+
+    private static final MethodHandle BOOLEAN_BITS;
+
+    private static final MethodHandle FLOAT_BITS;
+
+    private static final MethodHandle DOUBLE_BITS;
+
+    static {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            BOOLEAN_BITS = lookup.findStatic(FieldLayout.class, "booleanBits",
+                    MethodType.methodType(long.class, boolean.class));
+            FLOAT_BITS = lookup.findStatic(Float.class, "floatToIntBits",
+                    MethodType.methodType(int.class, float.class));
+            DOUBLE_BITS = lookup.findStatic(Double.class, "doubleToLongBits",
+                    MethodType.methodType(long.class, double.class));
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final Field[] fields;
+
+    final byte[] kinds;
+
+    final int[] positions;
+
+    final int primitiveCount;
+
+    private final MethodHandle[] getters;
+
+    private FieldLayout(final Field[] fields) {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.fields = fields;
+        this.kinds = new byte[fields.length];
+        this.positions = new int[fields.length];
+        this.getters = new MethodHandle[fields.length];
+        int primitives = 0;
+        for (int i = 0; i < fields.length; i++) {
+            final Class<?> type = fields[i].getType();
+            final MethodHandle getter;
+            try {
+                getter = lookup.unreflectGetter(fields[i]);
+            } catch (final IllegalAccessException e) {
+                throw new InternalError("Unexpected IllegalAccessException", e);
+            }
+            if (type.isPrimitive()) {
+                this.kinds[i] = PrimitiveOrWrapperProxy.kindOf(type);
+                this.positions[i] = primitives++;
+                this.getters[i] = toBits(getter, type).asType(PRIMITIVE_GETTER);
+            } else {
+                this.kinds[i] = REFERENCE;
+                this.positions[i] = i - primitives;
+                this.getters[i] = getter.asType(REFERENCE_GETTER);
+            }
+        }
+        this.primitiveCount = primitives;
+    }
+
+    private static MethodHandle toBits(final MethodHandle getter, final Class<?> type) {
+        if (type == boolean.class) {
+            return MethodHandles.filterReturnValue(getter, BOOLEAN_BITS);
+        } else if (type == float.class) {
+            return MethodHandles.filterReturnValue(getter, FLOAT_BITS);
+        } else if (type == double.class) {
+            return MethodHandles.filterReturnValue(getter, DOUBLE_BITS);
+        }
+        return getter;
+    }
+
+    private static long booleanBits(final boolean value) {
+        return value ? 1L : 0L;
+    }
+
+    Object get(final int index, final Object obj) {
+        try {
+            return (Object) this.getters[index].invokeExact(obj);
+        } catch (final Throwable t) {
+            throw new InternalError("Unexpected field access failure", t);
+        }
+    }
+
+    long getBits(final int index, final Object obj) {
+        try {
+            return (long) this.getters[index].invokeExact(obj);
+        } catch (final Throwable t) {
+            throw new InternalError("Unexpected field access failure", t);
+        }
+    }
+
+    static ClassValue<FieldLayout> cache(final Predicate<Field> included, final int maxInheritanceDepth) {
+        return new ClassValue<FieldLayout>() {
+            @Override
+            protected FieldLayout computeValue(final Class<?> type) {
+                return of(type, included, maxInheritanceDepth);
+            }
+        };
+    }
+
+    static FieldLayout of(Class<?> clazz, final Predicate<Field> included, final int maxInheritanceDepth) {
+        final List<Field> result = new ArrayList<>();
+        int inheritanceDepth = 0;
+        while (clazz != null && inheritanceDepth < maxInheritanceDepth) {
+            final Field[] fields = clazz.getDeclaredFields();
+            AccessibleObject.setAccessible(fields, true);
+            for (final Field field : fields) {
+                if (Modifier.isStatic(field.getModifiers())
+                        || !included.test(field)
+                        || field.getName().contains("$")) {
+                    continue;
+                }
+                result.add(field);
+            }
+            clazz = clazz.getSuperclass();
+            inheritanceDepth++;
+        }
+        return new FieldLayout(result.toArray(new Field[0]));
+    }
+}
@@ -0,0 +1,223 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+final class Footprint {
+    private static final boolean COMPRESSED_OOPS = Boolean.parseBoolean(vmOption("UseCompressedOops", "true"));
+
+    private static final int OBJECT_HEADER =
+            Boolean.parseBoolean(vmOption("UseCompressedClassPointers", String.valueOf(COMPRESSED_OOPS))) ? 12 : 16;
+
+    private static final int ARRAY_HEADER = OBJECT_HEADER + 4;
+
+    private static final int REFERENCE_SIZE = COMPRESSED_OOPS ? 4 : 8;
+
+    private static final int ALIGNMENT = Integer.parseInt(vmOption("ObjectAlignmentInBytes", "8"));
+
+    private static final boolean COMPACT_STRINGS = Boolean.parseBoolean(vmOption("CompactStrings", "false"));
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(final Class<?> type) {
+            long size = OBJECT_HEADER;
+            for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+                for (final Field field : clazz.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += sizeOf(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+    private final Set<Proxy> visited;
+
+    private final Deque<Proxy> stack;
+
+    private final Set<Object> payloads;
+
+    private long proxyCount;
+
+    private long objectCount;
+
+    private long bytes;
+
+    private Footprint() {
+        this.visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.stack = new ArrayDeque<>();
+        this.payloads = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    static SnapshotFootprint of(final Proxy root) {
+        final Footprint footprint = new Footprint();
+        footprint.visit(root);
+        while (!footprint.stack.isEmpty()) {
+            footprint.account(footprint.stack.pop());
+        }
+        return new SnapshotFootprint(footprint.proxyCount, footprint.objectCount, footprint.bytes);
+    }
+
+    private void visit(final Proxy proxy) {
+        if (proxy != Null.V && proxy != Skipped.V && this.visited.add(proxy)) {
+            this.stack.push(proxy);
+        }
+    }
+
+    private void account(final Proxy proxy) {
+        this.proxyCount++;
+        count(shallowSizeOf(proxy));
+        if (proxy instanceof PrimitiveArrayProxy) {
+            final PrimitiveArrayProxy array = (PrimitiveArrayProxy) proxy;
+            count(arraySizeOf(array.length(), elementSizeOf(array)));
+        } else if (proxy instanceof PrimitiveWrapperArrayProxy) {
+            final Object[] array = ((PrimitiveWrapperArrayProxy) proxy).array;
+            count(arraySizeOf(array.length, REFERENCE_SIZE));
+            for (final Object element : array) {
+                accountPayload(element);
+            }
+        } else if (proxy instanceof StringProxy) {
+            accountPayload(((StringProxy) proxy).value);
+        } else if (proxy instanceof ValueProxy) {
+            accountPayload(((ValueProxy) proxy).value);
+        } else if (proxy instanceof AbstractCompositeObjectProxy) {
+            if (proxy instanceof HashCollectionProxy && ((HashCollectionProxy) proxy).entryHashes != null) {
+                count(arraySizeOf(((HashCollectionProxy) proxy).entryHashes.length, 4));
+            }
+            accountValues(((AbstractCompositeObjectProxy) proxy).values);
+        }
+    }
+
+    private void accountValues(final List<Proxy> values) {
+        final int size = values.size();
+        count(shallowSizeOf(values));
+        if (values instanceof Slots) {
+            final Slots slots = (Slots) values;
+            if (slots.bits.length > 0) {
+                count(arraySizeOf(slots.bits.length, 8));
+            }
+            if (slots.references.length > 0) {
+                count(arraySizeOf(slots.references.length, REFERENCE_SIZE));
+            }
+            for (final Proxy reference : slots.references) {
+                visit(reference);
+            }
+            return;
+        }
+        if (values instanceof LazySnapshot.LazyValues) {
+            final LazySnapshot.LazyValues lazy = (LazySnapshot.LazyValues) values;
+            count(arraySizeOf(size, REFERENCE_SIZE));
+            count(arraySizeOf(size, REFERENCE_SIZE));
+            for (int i = 0; i < size; i++) {
+                if (lazy.isMaterialized(i)) {
+                    visit(values.get(i));
+                }
+            }
+            return;
+        }
+        count(arraySizeOf(size, REFERENCE_SIZE));
+        for (int i = 0; i < size; i++) {
+            visit(values.get(i));
+        }
+    }
+
+    private void accountPayload(final Object payload) {
+        if (payload == null || !this.payloads.add(payload)) {
+            return;
+        }
+        count(shallowSizeOf(payload));
+        if (payload instanceof String) {
+            final String string = (String) payload;
+            count(arraySizeOf(string.length(), COMPACT_STRINGS && isLatin1(string) ? 1 : 2));
+        }
+    }
+
+    private void count(final long size) {
+        this.objectCount++;
+        this.bytes += size;
+    }
+
+    static long shallowSizeOf(final Object obj) {
+        return SHALLOW_SIZES.get(obj.getClass());
+    }
+
+    static long arraySizeOf(final int length, final int elementSize) {
+        return align(ARRAY_HEADER + (long) length * elementSize);
+    }
+
+    private static int elementSizeOf(final PrimitiveArrayProxy array) {
+        if (array instanceof PrimitiveArrayProxy.OfLong || array instanceof PrimitiveArrayProxy.OfDouble) {
+            return 8;
+        } else if (array instanceof PrimitiveArrayProxy.OfInt || array instanceof PrimitiveArrayProxy.OfFloat) {
+            return 4;
+        } else if (array instanceof PrimitiveArrayProxy.OfShort || array instanceof PrimitiveArrayProxy.OfChar) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static int sizeOf(final Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_SIZE;
+    }
+
+    private static boolean isLatin1(final String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long align(final long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static String vmOption(final String name, final String fallback) {
+        try {
+            final HotSpotDiagnosticMXBean vm = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return vm == null ? fallback : vm.getVMOption(name).getValue();
+        } catch (final RuntimeException | LinkageError e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+class HashCollectionProxy extends AbstractCompositeObjectProxy {
+    private static final long serialVersionUID = 1L;
+
+    final int arity;
+
+    int[] entryHashes;
+
+    private transient volatile Object pendingSeal;
+
+    HashCollectionProxy(final Class<?> type, final List<Proxy> values, final int arity) {
+        super(type, values);
+        this.arity = arity;
+    }
+
+    HashCollectionProxy(final int typeId, final List<Proxy> values, final int arity) {
+        super(typeId, values);
+        this.arity = arity;
+    }
+
+    int size() {
+        return this.values.size() / this.arity;
+    }
+
+    void sealLater(final Object monitor) {
+        this.pendingSeal = monitor;
+    }
+
+    void ensureSealed() {
+        final Object monitor = this.pendingSeal;
+        if (monitor != null) {
+            synchronized (monitor) {
+                if (this.pendingSeal != null) {
+                    seal();
+                    this.pendingSeal = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        ensureSealed();
+        return super.hashCode();
+    }
+
+    private Object writeReplace() {
+        ensureSealed();
+        return this;
+    }
+
+    void seal() {
+        ObjectUtils.structuralHashCode(this);
+        final int size = size();
+        final long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = ((long) this.entryHashes[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        final Proxy[] sorted = new Proxy[this.values.size()];
+        this.entryHashes = new int[size];
+        for (int i = 0; i < size; i++) {
+            final int entry = (int) order[i];
+            this.entryHashes[i] = (int) (order[i] >> 32);
+            for (int j = 0; j < this.arity; j++) {
+                sorted[i * this.arity + j] = this.values.get(entry * this.arity + j);
+            }
+        }
+        this.values = Arrays.asList(sorted);
+    }
+}
@@ -0,0 +1,118 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+final class JDKClassIndex {
+    static final String RESOURCE = "/jdk-classes.idx";
+
+    static final int MAGIC = 0x4A444B49;
+
+    private final ByteBuffer index;
+
+    private final int packageCount;
+
+    private final int packageStarts;
+
+    private final int packageNames;
+
+    private final int classNames;
+
+    private final int blob;
+
+    private JDKClassIndex(final ByteBuffer index, final int packageCount, final int classCount) {
+        this.index = index;
+        this.packageCount = packageCount;
+        this.packageStarts = 12;
+        this.packageNames = this.packageStarts + 4 * (packageCount + 1);
+        this.classNames = this.packageNames + 4 * (packageCount + 1);
+        this.blob = this.classNames + 4 * (classCount + 1);
+    }
+
+    static JDKClassIndex load() {
+        try (InputStream is = JDKClassIndex.class.getResourceAsStream(RESOURCE)) {
+            if (is == null) {
+                throw new IllegalStateException("Missing JDK class index " + RESOURCE);
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 18);
+            final byte[] chunk = new byte[1 << 13];
+            for (int n; (n = is.read(chunk)) > 0; ) {
+                bytes.write(chunk, 0, n);
+            }
+            final ByteBuffer index = ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer();
+            if (index.limit() < 12 || index.getInt(0) != MAGIC) {
+                throw new IllegalStateException("Malformed JDK class index " + RESOURCE);
+            }
+            return new JDKClassIndex(index, index.getInt(4), index.getInt(8));
+        } catch (final IOException e) {
+            throw new IllegalStateException("Unable to read JDK class index " + RESOURCE, e);
+        }
+    }
+
+    boolean contains(final String className) {
+        final int lastDot = className.lastIndexOf('.');
+        final byte[] packageName = className.substring(0, lastDot + 1).getBytes(StandardCharsets.UTF_8);
+        final int pkg = search(packageName, 0, this.packageCount, this.packageNames);
+        if (pkg < 0) {
+            return false;
+        }
+        final byte[] simpleName = className.substring(lastDot + 1).getBytes(StandardCharsets.UTF_8);
+        final int from = this.index.getInt(this.packageStarts + 4 * pkg);
+        final int to = this.index.getInt(this.packageStarts + 4 * (pkg + 1));
+        return search(simpleName, from, to, this.classNames) >= 0;
+    }
+
+    private int search(final byte[] key, int low, int high, final int offsets) {
+        high--;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int start = this.index.getInt(offsets + 4 * mid);
+            final int end = this.index.getInt(offsets + 4 * (mid + 1));
+            final int cmp = compare(start, end, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(final int start, final int end, final byte[] key) {
+        final int base = this.blob;
+        final int length = end - start;
+        final int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            final int cmp = (this.index.get(base + start + i) & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+}
@@ -0,0 +1,104 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+final class JDKClassIndexGenerator {
+    private JDKClassIndexGenerator() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final Path source = Paths.get(args[0]);
+        final Path target = Paths.get(args[1]);
+        final Map<String, TreeSet<String>> packages = new TreeMap<>(JDKClassIndexGenerator::compareUtf8);
+        for (final String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final int lastDot = line.lastIndexOf('.');
+            packages.computeIfAbsent(line.substring(0, lastDot + 1),
+                    p -> new TreeSet<>(JDKClassIndexGenerator::compareUtf8)).add(line.substring(lastDot + 1));
+        }
+        final ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        final List<Integer> packageStarts = new ArrayList<>();
+        final List<Integer> packageNames = new ArrayList<>();
+        int classCount = 0;
+        for (final String pkg : packages.keySet()) {
+            packageStarts.add(classCount);
+            packageNames.add(blob.size());
+            blob.write(pkg.getBytes(StandardCharsets.UTF_8));
+            classCount += packages.get(pkg).size();
+        }
+        packageStarts.add(classCount);
+        packageNames.add(blob.size());
+        final List<Integer> classNames = new ArrayList<>();
+        for (final TreeSet<String> classes : packages.values()) {
+            for (final String simpleName : classes) {
+                classNames.add(blob.size());
+                blob.write(simpleName.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        classNames.add(blob.size());
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(JDKClassIndex.MAGIC);
+            out.writeInt(packages.size());
+            out.writeInt(classCount);
+            for (final int offset : packageStarts) {
+                out.writeInt(offset);
+            }
+            for (final int offset : packageNames) {
+                out.writeInt(offset);
+            }
+            for (final int offset : classNames) {
+                out.writeInt(offset);
+            }
+            blob.writeTo(out);
+        }
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Files.write(target, bytes.toByteArray());
+    }
+
+    private static int compareUtf8(final String a, final String b) {
+        final byte[] x = a.getBytes(StandardCharsets.UTF_8);
+        final byte[] y = b.getBytes(StandardCharsets.UTF_8);
+        final int common = Math.min(x.length, y.length);
+        for (int i = 0; i < common; i++) {
+            final int cmp = (x[i] & 0xFF) - (y[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return x.length - y.length;
+    }
+}
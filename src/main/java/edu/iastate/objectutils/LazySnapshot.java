@@ -0,0 +1,160 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+final class LazySnapshot {
+    private final ObjectUtils config;
+
+    private final Map<Object, Proxy> proxyCache;
+
+    private LazySnapshot(final ObjectUtils config) {
+        this.config = config;
+        this.proxyCache = new IdentityHashMap<>();
+    }
+
+    static Proxy of(final ObjectUtils config, final Object root) {
+        final LazySnapshot snapshot = new LazySnapshot(config);
+        synchronized (snapshot) {
+            return snapshot.proxyFor(root);
+        }
+    }
+
+    private Proxy proxyFor(final Object obj) {
+        if (obj == null) {
+            return Null.V;
+        }
+        final Proxy cached = this.proxyCache.get(obj);
+        if (cached != null) {
+            return cached;
+        }
+        final Class<?> clazz = obj.getClass();
+        final Proxy terminal = this.config.terminalProxyFor(obj, clazz);
+        if (terminal != null) {
+            this.proxyCache.put(obj, terminal);
+            return terminal;
+        }
+        if (obj instanceof HashSet || obj instanceof HashMap || obj instanceof Hashtable) {
+            final boolean set = obj instanceof HashSet;
+            final Object[] elements = set ? ((HashSet<?>) obj).toArray() : ObjectUtils.flattenMap((Map<?, ?>) obj);
+            final HashCollectionProxy proxy = new HashCollectionProxy(clazz, null, set ? 1 : 2);
+            this.proxyCache.put(obj, proxy);
+            proxy.values = capture(elements);
+            proxy.sealLater(this);
+            return proxy;
+        }
+        if (clazz.isArray()) {
+            final ObjectArrayProxy proxy = new ObjectArrayProxy(clazz, null);
+            this.proxyCache.put(obj, proxy);
+            proxy.values = capture(((Object[]) obj).clone());
+            return proxy;
+        }
+        final FieldLayout layout = this.config.layoutOf(clazz);
+        final ObjectProxy proxy = new ObjectProxy(clazz, null);
+        this.proxyCache.put(obj, proxy);
+        final int size = layout.kinds.length;
+        final Object[] referents = new Object[size];
+        final Proxy[] slots = new Proxy[size];
+        for (int i = 0; i < size; i++) {
+            final byte kind = layout.kinds[i];
+            if (kind == FieldLayout.REFERENCE) {
+                referents[i] = layout.get(i, obj);
+            } else {
+                slots[i] = new PrimitiveOrWrapperProxy(kind, layout.getBits(i, obj));
+            }
+        }
+        proxy.values = capture(referents, slots);
+        return proxy;
+    }
+
+    private LazyValues capture(final Object[] referents) {
+        return capture(referents, new Proxy[referents.length]);
+    }
+
+    private LazyValues capture(final Object[] referents, final Proxy[] slots) {
+        for (int i = 0; i < referents.length; i++) {
+            final Object referent = referents[i];
+            if (referent == null) {
+                if (slots[i] == null) {
+                    slots[i] = Null.V;
+                }
+            } else if (referent.getClass().isArray() && referent.getClass().getComponentType().isPrimitive()) {
+                slots[i] = proxyFor(referent);
+                referents[i] = null;
+            }
+        }
+        return new LazyValues(this, referents, slots);
+    }
+
+    static final class LazyValues extends AbstractList<Proxy> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final transient LazySnapshot snapshot;
+
+        private final transient Object[] referents;
+
+        private final transient Proxy[] slots;
+
+        LazyValues(final LazySnapshot snapshot, final Object[] referents, final Proxy[] slots) {
+            this.snapshot = snapshot;
+            this.referents = referents;
+            this.slots = slots;
+        }
+
+        @Override
+        public Proxy get(final int index) {
+            synchronized (this.snapshot) {
+                Proxy proxy = this.slots[index];
+                if (proxy == null) {
+                    proxy = this.snapshot.proxyFor(this.referents[index]);
+                    this.slots[index] = proxy;
+                    this.referents[index] = null;
+                }
+                return proxy;
+            }
+        }
+
+        @Override
+        public int size() {
+            return this.slots.length;
+        }
+
+        boolean isMaterialized(final int index) {
+            synchronized (this.snapshot) {
+                return this.slots[index] != null;
+            }
+        }
+
+        private Object writeReplace() throws ObjectStreamException {
+            return new ArrayList<>(this);
+        }
+    }
+}
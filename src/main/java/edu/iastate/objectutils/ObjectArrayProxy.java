@@ -28,4 +28,8 @@ class ObjectArrayProxy extends AbstractCompositeObjectProxy {
     public ObjectArrayProxy(final Class<?> type, final List<Proxy> values) {
         super(type, values);
     }
+
+    public ObjectArrayProxy(final int typeId, final List<Proxy> values) {
+        super(typeId, values);
+    }
 }
@@ -28,4 +28,8 @@ class ObjectProxy extends AbstractCompositeObjectProxy {
     ObjectProxy(final Class<?> type, final List<Proxy> values) {
         super(type, values);
     }
+
+    ObjectProxy(final int typeId, final List<Proxy> values) {
+        super(typeId, values);
+    }
 }
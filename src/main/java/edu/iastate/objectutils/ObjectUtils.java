@@ -20,263 +20,1119 @@ package edu.iastate.objectutils;
  * #L%
  */
 
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.apache.commons.lang3.ClassUtils.isPrimitiveOrWrapper;
 import static org.apache.commons.lang3.ClassUtils.isPrimitiveWrapper;
 
 public final class ObjectUtils {
+    public static final double DISTANCE_EXCEEDED = Double.POSITIVE_INFINITY;
+
+    private static final int CYCLE_HASH = 0x2545F491;
+
+    private static final int SELF_LOOP = -2;
+
+    private static final int LIVE_HASH_BUDGET = 32;
+
     private final Predicate<Field> included;
 
     private final int maxDepth;
 
     private final int maxInheritanceDepth;
 
-    private final Set<W<Proxy>> lhsVisited;
+    private final boolean jdkValueTypes;
+
+    private final Map<Class<?>, UnaryOperator<Object>> valueTypes;
+
+    private final ClassValue<FieldLayout> layouts;
 
-    private final Set<W<Proxy>> rhsVisited;
+    private final ClassValue<Boolean> terminals;
 
-    private final Map<W<?>, Proxy> proxyCache;
+    private final ConcurrentHashMap<Integer, String[]> fieldNames;
+
+    private final CanonicalTable canonicalTable;
 
     private ObjectUtils(final Predicate<Field> included,
                         final int maxDepth,
-                        final int maxInheritanceDepth) {
+                        final int maxInheritanceDepth,
+                        final boolean jdkValueTypes,
+                        final Map<Class<?>, UnaryOperator<Object>> valueTypes,
+                        final CanonicalTable canonicalTable) {
         this.included = included;
         this.maxDepth = maxDepth;
         this.maxInheritanceDepth = maxInheritanceDepth;
-        this.lhsVisited = new HashSet<>();
-        this.rhsVisited = new HashSet<>();
-        this.proxyCache = new HashMap<>();
+        this.jdkValueTypes = jdkValueTypes;
+        this.valueTypes = valueTypes;
+        this.canonicalTable = canonicalTable;
+        this.layouts = FieldLayout.cache(included, maxInheritanceDepth);
+        this.fieldNames = new ConcurrentHashMap<>();
+        if (jdkValueTypes || !valueTypes.isEmpty()) {
+            this.terminals = new ClassValue<Boolean>() {
+                @Override
+                protected Boolean computeValue(final Class<?> type) {
+                    return valueTypes.containsKey(type) || jdkValueTypes && Utils.isJDKValueType(type);
+                }
+            };
+        } else {
+            this.terminals = null;
+        }
     }
 
     public static ObjectUtils build() {
-        return new ObjectUtils(m -> true, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        return new ObjectUtils(m -> true, Integer.MAX_VALUE, Integer.MAX_VALUE, false, Collections.emptyMap(), null);
     }
 
     public ObjectUtils include(final Predicate<Field> included) {
-        return new ObjectUtils(included, this.maxDepth, this.maxInheritanceDepth);
+        return new ObjectUtils(included, this.maxDepth, this.maxInheritanceDepth, this.jdkValueTypes, this.valueTypes,
+                this.canonicalTable);
     }
 
     public ObjectUtils withMaxDepth(final int maxDepth) {
-        return new ObjectUtils(this.included, maxDepth, this.maxInheritanceDepth);
+        return new ObjectUtils(this.included, maxDepth, this.maxInheritanceDepth, this.jdkValueTypes, this.valueTypes,
+                this.canonicalTable);
     }
 
     public ObjectUtils withMaxInheritanceDepth(final int maxInheritanceDepth) {
-        return new ObjectUtils(this.included, this.maxDepth, maxInheritanceDepth);
+        return new ObjectUtils(this.included, this.maxDepth, maxInheritanceDepth, this.jdkValueTypes, this.valueTypes,
+                this.canonicalTable);
+    }
+
+    public ObjectUtils withJDKValueTypes() {
+        return new ObjectUtils(this.included, this.maxDepth, this.maxInheritanceDepth, true, this.valueTypes,
+                this.canonicalTable);
+    }
+
+    public ObjectUtils withValueTypes(final Class<?>... classes) {
+        final Map<Class<?>, UnaryOperator<Object>> valueTypes = new HashMap<>(this.valueTypes);
+        for (final Class<?> clazz : classes) {
+            registerValueType(clazz);
+            valueTypes.put(clazz, UnaryOperator.identity());
+        }
+        return new ObjectUtils(this.included, this.maxDepth, this.maxInheritanceDepth, this.jdkValueTypes,
+                Collections.unmodifiableMap(valueTypes), this.canonicalTable);
+    }
+
+    public <T> ObjectUtils withValueType(final Class<T> clazz, final UnaryOperator<T> copier) {
+        registerValueType(clazz);
+        Objects.requireNonNull(copier, "copier");
+        final Map<Class<?>, UnaryOperator<Object>> valueTypes = new HashMap<>(this.valueTypes);
+        valueTypes.put(clazz, value -> copier.apply(clazz.cast(value)));
+        return new ObjectUtils(this.included, this.maxDepth, this.maxInheritanceDepth, this.jdkValueTypes,
+                Collections.unmodifiableMap(valueTypes), this.canonicalTable);
+    }
+
+    private static void registerValueType(final Class<?> clazz) {
+        if (!Utils.hasEquals(clazz)) {
+            throw new IllegalArgumentException(clazz.getName() + " must override equals");
+        }
+        ValueInputStream.register(clazz);
+    }
+
+    public ObjectUtils withHashConsing() {
+        return new ObjectUtils(this.included, this.maxDepth, this.maxInheritanceDepth, this.jdkValueTypes,
+                this.valueTypes, new CanonicalTable());
     }
 
     public boolean deepEquals(final Object lhs, final Object rhs) {
         if (!(lhs instanceof Proxy) || !(rhs instanceof Proxy)) {
             return false;
         }
+        return structurallyEquals((Proxy) lhs, (Proxy) rhs);
+    }
+
+    public boolean deepEqualsLive(final Object lhs, final Object rhs) {
+        final TraversalContext context = TraversalContext.acquire();
+        try {
+            return deepEqualsLive0(context, lhs, rhs);
+        } finally {
+            TraversalContext.release(context);
+        }
+    }
+
+    static boolean structurallyEquals(final Proxy lhs, final Proxy rhs) {
         if (lhs == rhs) {
             return true;
         }
-        this.lhsVisited.clear();
-        this.rhsVisited.clear();
-        return deepEquals0(new W<>((Proxy) lhs), new W<>((Proxy) rhs));
+        final TraversalContext context = TraversalContext.acquire();
+        try {
+            return compare(context, lhs, rhs, 0D, false) == 0D;
+        } finally {
+            TraversalContext.release(context);
+        }
     }
 
-    public boolean deepEquals0(final W<Proxy> lhsW, final W<Proxy> rhsW) {
-        final Proxy lhs = lhsW.value;
-        final Proxy rhs = rhsW.value;
+    static int structuralHashCode(final AbstractCompositeObjectProxy root) {
+        if (root.hash == 0) {
+            final TraversalContext context = TraversalContext.acquire();
+            try {
+                structuralHashCode0(context, root);
+            } finally {
+                TraversalContext.release(context);
+            }
+        }
+        return root.hash;
+    }
 
-        if (lhs == rhs) {
+    private static void structuralHashCode0(final TraversalContext context, final AbstractCompositeObjectProxy root) {
+        context.pushPair(root, null);
+        context.pairHashes[0] = context.rank(root);
+        while (context.pairTop > 0) {
+            final int frame = context.pairTop - 1;
+            final AbstractCompositeObjectProxy node = context.lhsFrames[frame];
+            final int rank = context.pairHashes[frame];
+            final int index = context.pairCursors[frame];
+            if (index == node.values.size()) {
+                context.popPair();
+                if (context.lowLinks[rank] == rank) {
+                    sealComponent(context, rank);
+                }
+                if (frame > 0) {
+                    final int parent = context.pairHashes[frame - 1];
+                    context.lowLinks[parent] = Math.min(context.lowLinks[parent], context.lowLinks[rank]);
+                }
+                continue;
+            }
+            context.pairCursors[frame] = index + 1;
+            if (node.values instanceof Slots && ((Slots) node.values).isPrimitive(index)) {
+                continue;
+            }
+            final Proxy child = node.values.get(index);
+            if (!(child instanceof AbstractCompositeObjectProxy) || ((AbstractCompositeObjectProxy) child).hash != 0) {
+                continue;
+            }
+            final Integer seen = context.ranks.get(child);
+            if (seen == null) {
+                final AbstractCompositeObjectProxy composite = (AbstractCompositeObjectProxy) child;
+                context.pushPair(composite, null);
+                context.pairHashes[frame + 1] = context.rank(composite);
+            } else if (context.components[seen] < 0) {
+                context.lowLinks[rank] = Math.min(context.lowLinks[rank], seen);
+                if (seen == rank) {
+                    context.components[rank] = SELF_LOOP;
+                }
+            }
+        }
+    }
+
+    private static void sealComponent(final TraversalContext context, final int rank) {
+        int start = context.rankedTop - 1;
+        while (context.ranks.get(context.ranked[start]) != rank) {
+            start--;
+        }
+        final int size = context.rankedTop - start;
+        if (size == 1 && context.components[rank] != SELF_LOOP) {
+            context.components[rank] = rank;
+            publishHash(context.ranked[start], localHashCode(context.ranked[start]));
+        } else {
+            final int[] locals = new int[size];
+            for (int i = 0; i < size; i++) {
+                context.components[context.ranks.get(context.ranked[start + i])] = rank;
+                locals[i] = localHashCode(context.ranked[start + i]);
+            }
+            final int[] distinct = locals.clone();
+            Arrays.sort(distinct);
+            int component = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || distinct[i] != distinct[i - 1]) {
+                    component = 31 * component + distinct[i];
+                }
+            }
+            boolean published = false;
+            for (int i = 0; i < size; i++) {
+                published |= context.ranked[start + i].hash != 0;
+            }
+            if (!published) {
+                for (int i = 0; i < size; i++) {
+                    publishHash(context.ranked[start + i], 31 * locals[i] + component);
+                }
+            }
+        }
+        Arrays.fill(context.ranked, start, context.rankedTop, null);
+        context.rankedTop = start;
+    }
+
+    private static void publishHash(final AbstractCompositeObjectProxy node, final int hash) {
+        if (node.hash == 0) {
+            node.hash = hash == 0 ? CYCLE_HASH : hash;
+        }
+    }
+
+    private static int localHashCode(final AbstractCompositeObjectProxy node) {
+        final List<Proxy> values = node.values;
+        final int typeHash = TypeTable.nameOf(node.typeId).hashCode();
+        if (node instanceof HashCollectionProxy) {
+            final HashCollectionProxy collection = (HashCollectionProxy) node;
+            final int arity = collection.arity;
+            final int[] entryHashes = new int[collection.size()];
+            int sum = 0;
+            for (int i = 0; i < entryHashes.length; i++) {
+                int h = 0;
+                for (int j = 0; j < arity; j++) {
+                    h = 31 * h + contributionOf(values.get(i * arity + j));
+                }
+                entryHashes[i] = h;
+                sum += h;
+            }
+            collection.entryHashes = entryHashes;
+            return 31 * (31 * typeHash + entryHashes.length) + sum;
+        }
+        int h = 31 * typeHash + values.size();
+        for (int i = 0; i < values.size(); i++) {
+            if (values instanceof Slots && ((Slots) values).isPrimitive(i)) {
+                h = 31 * h + ((Slots) values).hashCodeAt(i);
+            } else {
+                h = 31 * h + contributionOf(values.get(i));
+            }
+        }
+        return h;
+    }
+
+    private static int contributionOf(final Proxy child) {
+        if (child instanceof AbstractCompositeObjectProxy) {
+            final int hash = ((AbstractCompositeObjectProxy) child).hash;
+            return hash == 0 ? CYCLE_HASH : hash;
+        }
+        return proxyHashCode(child);
+    }
+
+    static int proxyHashCode(final Proxy proxy) {
+        if (proxy == Null.V) {
+            return 0;
+        }
+        if (proxy == Skipped.V) {
+            return 1;
+        }
+        return proxy.hashCode();
+    }
+
+    private static double compare(final TraversalContext context,
+                                  final Proxy lhsRoot,
+                                  final Proxy rhsRoot,
+                                  final double maxDistance,
+                                  final boolean distance) {
+        double total = 0D;
+        if (distance) {
+            total = enterDistance(context, lhsRoot, rhsRoot, limitOf(maxDistance));
+            if (total > maxDistance) {
+                return DISTANCE_EXCEEDED;
+            }
+        } else if (!enterEquals(context, lhsRoot, rhsRoot)) {
+            return 1D;
+        }
+        return drain(context, total, maxDistance, distance);
+    }
+
+    private static double drain(final TraversalContext context,
+                                final double initial,
+                                final double maxDistance,
+                                final boolean distance) {
+        double total = initial;
+        while (context.pairTop > 0) {
+            final int frame = context.pairTop - 1;
+            final AbstractCompositeObjectProxy lhsObj = context.lhsFrames[frame];
+            final AbstractCompositeObjectProxy rhsObj = context.rhsFrames[frame];
+            if (context.matchTop > 0 && context.topMatching().frame == frame) {
+                final int unmatched = stepMatching(context, (HashCollectionProxy) lhsObj, (HashCollectionProxy) rhsObj);
+                if (unmatched < 0) {
+                    continue;
+                }
+                if (context.matchTop > 0) {
+                    if (unmatched > 0) {
+                        reject(context);
+                    }
+                } else if (!distance) {
+                    if (unmatched > 0) {
+                        return 1D;
+                    }
+                } else {
+                    total += unmatched;
+                    if (total > maxDistance) {
+                        return DISTANCE_EXCEEDED;
+                    }
+                }
+                continue;
+            }
+            final int index = context.pairCursors[frame];
+            if (index == lhsObj.values.size()) {
+                context.popPair();
+                continue;
+            }
+            context.pairCursors[frame] = index + 1;
+            final boolean primitive = Slots.isPacked(lhsObj.values, rhsObj.values)
+                    && ((Slots) lhsObj.values).isPrimitive(index);
+            if (distance && context.matchTop == 0) {
+                if (primitive) {
+                    if (((Slots) lhsObj.values).bitsAt(index) != ((Slots) rhsObj.values).bitsAt(index)) {
+                        total += 1D;
+                    }
+                } else {
+                    total += enterDistance(context,
+                            lhsObj.values.get(index),
+                            rhsObj.values.get(index),
+                            limitOf(maxDistance - total));
+                }
+                if (total > maxDistance) {
+                    return DISTANCE_EXCEEDED;
+                }
+            } else if (!primitive && !enterEquals(context, lhsObj.values.get(index), rhsObj.values.get(index))) {
+                if (context.matchTop == 0) {
+                    return 1D;
+                }
+                reject(context);
+            }
+        }
+        return total;
+    }
+
+    private boolean deepEqualsLive0(final TraversalContext context, final Object lhsRoot, final Object rhsRoot) {
+        if (!enterLiveEquals(context, lhsRoot, rhsRoot, 0)) {
+            return false;
+        }
+        while (context.top > 0) {
+            final int frame = context.top - 1;
+            if (context.matchTop > 0 && context.topMatching().frame == frame) {
+                if (!stepLiveMatching(context) && context.matchTop == 0) {
+                    return false;
+                }
+                continue;
+            }
+            final int index = context.cursors[frame];
+            if (index == context.lengths[frame]) {
+                context.pop();
+                continue;
+            }
+            context.cursors[frame] = index + 1;
+            final Object lhsObj = context.objects[frame];
+            final Object rhsObj = context.rhsObjects[frame];
+            final FieldLayout layout = context.layouts[frame];
+            final int depth = context.depths[frame] + 1;
+            final boolean equal;
+            if (layout == null) {
+                equal = enterLiveEquals(context, ((Object[]) lhsObj)[index], ((Object[]) rhsObj)[index], depth);
+            } else if (layout.kinds[index] == FieldLayout.REFERENCE) {
+                equal = enterLiveEquals(context, layout.get(index, lhsObj), layout.get(index, rhsObj), depth);
+            } else {
+                equal = depth >= this.maxDepth || layout.getBits(index, lhsObj) == layout.getBits(index, rhsObj);
+            }
+            if (!equal) {
+                if (context.matchTop == 0) {
+                    return false;
+                }
+                rejectLive(context);
+            }
+        }
+        return true;
+    }
+
+    private boolean stepLiveMatching(final TraversalContext context) {
+        final TraversalContext.Matching matching = context.topMatching();
+        final int frame = matching.frame;
+        final int element = context.cursors[frame];
+        if (element < 0) {
+            int candidate = matching.candidate;
+            while (candidate < matching.runEnd && matching.used[candidate]) {
+                candidate++;
+            }
+            if (candidate == matching.runEnd) {
+                finishLiveMatching(context, matching);
+                if (context.matchTop > 0) {
+                    rejectLive(context);
+                }
+                return false;
+            }
+            matching.candidate = candidate;
+            matching.mark = context.undoLog.size();
+            context.cursors[frame] = 0;
+            return true;
+        }
+        if (element == matching.arity) {
+            matching.used[matching.candidate] = true;
+            if (advanceEntry(matching, matching.lhsHashes, matching.rhsHashes)) {
+                context.cursors[frame] = -1;
+            } else {
+                finishLiveMatching(context, matching);
+            }
+            return true;
+        }
+        context.cursors[frame] = element + 1;
+        final int slot = matching.entry * matching.arity + element;
+        final int rhsSlot = matching.candidate * matching.arity + element;
+        if (!enterLiveEquals(context,
+                ((Object[]) context.objects[frame])[slot],
+                ((Object[]) context.rhsObjects[frame])[rhsSlot],
+                context.depths[frame] + 1)) {
+            rejectLive(context);
+        }
+        return true;
+    }
+
+    private static void finishLiveMatching(final TraversalContext context, final TraversalContext.Matching matching) {
+        matching.lhsHashes = null;
+        matching.rhsHashes = null;
+        context.matchTop--;
+        context.pop();
+        if (context.matchTop == 0) {
+            context.undoLog.clear();
+        }
+    }
+
+    private static void rejectLive(final TraversalContext context) {
+        final TraversalContext.Matching matching = context.topMatching();
+        while (context.top - 1 > matching.frame) {
+            context.pop();
+        }
+        context.undo(matching.mark);
+        matching.candidate++;
+        context.cursors[matching.frame] = -1;
+    }
+
+    private boolean enterLiveCollection(final TraversalContext context,
+                                        final Object lhs,
+                                        final Object rhs,
+                                        final int depth) {
+        final int arity = lhs instanceof HashSet ? 1 : 2;
+        final Object[] lhsEntries = arity == 1 ? ((HashSet<?>) lhs).toArray() : flattenMap((Map<?, ?>) lhs);
+        final Object[] rhsEntries = arity == 1 ? ((HashSet<?>) rhs).toArray() : flattenMap((Map<?, ?>) rhs);
+        if (lhsEntries.length != rhsEntries.length) {
+            return false;
+        }
+        if (lhsEntries.length == 0) {
+            return true;
+        }
+        final int[] lhsHashes = sortByLiveHash(lhsEntries, arity, depth + 1);
+        final int[] rhsHashes = sortByLiveHash(rhsEntries, arity, depth + 1);
+        context.pushLive(lhsEntries, rhsEntries, null, lhsEntries.length, depth);
+        final int frame = context.top - 1;
+        final TraversalContext.Matching matching = context.pushMatching(frame, lhsHashes.length, 0);
+        matching.arity = arity;
+        matching.lhsHashes = lhsHashes;
+        matching.rhsHashes = rhsHashes;
+        seekRun(matching, lhsHashes[0], rhsHashes);
+        context.cursors[frame] = -1;
+        return true;
+    }
+
+    private int[] sortByLiveHash(final Object[] entries, final int arity, final int depth) {
+        final int size = entries.length / arity;
+        final long[] order = new long[size];
+        final int[] budget = new int[1];
+        for (int i = 0; i < size; i++) {
+            int h = 0;
+            for (int j = 0; j < arity; j++) {
+                budget[0] = LIVE_HASH_BUDGET;
+                h = 31 * h + liveHashCode(entries[i * arity + j], depth, budget);
+            }
+            order[i] = ((long) h << 32) | i;
+        }
+        Arrays.sort(order);
+        final Object[] unsorted = entries.clone();
+        final int[] hashes = new int[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = (int) (order[i] >> 32);
+            System.arraycopy(unsorted, (int) order[i] * arity, entries, i * arity, arity);
+        }
+        return hashes;
+    }
+
+    private int liveHashCode(final Object obj, final int depth, final int[] budget) {
+        if (obj == null || depth >= this.maxDepth) {
+            return 0;
+        }
+        final Class<?> clazz = obj.getClass();
+        switch (tagOf(obj, clazz)) {
+            case WireFormat.PRIMITIVE:
+            case WireFormat.VALUE:
+            case WireFormat.STRING:
+                return obj.hashCode();
+            case WireFormat.PRIMITIVE_ARRAY:
+                return Array.getLength(obj);
+            case WireFormat.WRAPPER_ARRAY:
+                return Arrays.hashCode((Object[]) obj);
+            case WireFormat.ENUM:
+                return ((Enum<?>) obj).name().hashCode();
+            case WireFormat.HASH_COLLECTION:
+                return 31 * clazz.hashCode()
+                        + (obj instanceof HashSet ? ((HashSet<?>) obj).size() : ((Map<?, ?>) obj).size());
+            default:
+                break;
+        }
+        int h = clazz.hashCode();
+        if (budget[0] == 0) {
+            return h;
+        }
+        budget[0]--;
+        if (clazz.isArray()) {
+            for (final Object element : (Object[]) obj) {
+                h = 31 * h + liveHashCode(element, depth + 1, budget);
+            }
+            return h;
+        }
+        final FieldLayout layout = this.layouts.get(clazz);
+        for (int i = 0; i < layout.kinds.length; i++) {
+            if (layout.kinds[i] == FieldLayout.REFERENCE) {
+                h = 31 * h + liveHashCode(layout.get(i, obj), depth + 1, budget);
+            } else if (depth + 1 < this.maxDepth) {
+                h = 31 * h + Long.hashCode(layout.getBits(i, obj));
+            }
+        }
+        return h;
+    }
+
+    private boolean enterLiveEquals(final TraversalContext context,
+                                    final Object lhs,
+                                    final Object rhs,
+                                    final int depth) {
+        if (depth >= this.maxDepth) {
+            return true;
+        }
+        if (lhs == null || rhs == null) {
+            return lhs == rhs;
+        }
+
+        final Class<?> clazz = lhs.getClass();
+        final Class<?> rhsClass = rhs.getClass();
+        final byte tag = tagOf(lhs, clazz);
+        if (tag != tagOf(rhs, rhsClass)) {
+            return false;
+        }
+
+        switch (tag) {
+            case WireFormat.PRIMITIVE:
+            case WireFormat.VALUE:
+                return clazz == rhsClass && lhs.equals(rhs);
+            case WireFormat.STRING:
+                return lhs.equals(rhs);
+            case WireFormat.PRIMITIVE_ARRAY:
+                return PrimitiveArrayProxy.arraysEqual(lhs, rhs);
+            case WireFormat.WRAPPER_ARRAY:
+                return Arrays.equals((Object[]) lhs, (Object[]) rhs);
+            case WireFormat.ENUM:
+                return lhs == rhs || (((Enum<?>) lhs).name().equals(((Enum<?>) rhs).name())
+                        && ((Enum<?>) lhs).getDeclaringClass().getName()
+                        .equals(((Enum<?>) rhs).getDeclaringClass().getName()));
+            default:
+                break;
+        }
+
+        final Object paired = context.pairedWith(lhs);
+        if (paired != null) {
+            return paired == rhs;
+        }
+        if (clazz != rhsClass || context.rhsVisited.contains(rhs)) {
+            return false;
+        }
+        context.pair(lhs, rhs);
+
+        if (tag == WireFormat.HASH_COLLECTION) {
+            return enterLiveCollection(context, lhs, rhs, depth);
+        }
+
+        if (tag == WireFormat.OBJECT_ARRAY) {
+            final int length = ((Object[]) lhs).length;
+            if (length != ((Object[]) rhs).length) {
+                return false;
+            }
+            context.pushLive(lhs, rhs, null, length, depth);
             return true;
         }
 
+        final FieldLayout layout = this.layouts.get(clazz);
+        context.pushLive(lhs, rhs, layout, layout.kinds.length, depth);
+        return true;
+    }
+
+    private byte tagOf(final Object obj, final Class<?> clazz) {
+        if (isPrimitiveOrWrapper(clazz)) {
+            return WireFormat.PRIMITIVE;
+        }
+        if (clazz == String.class) {
+            return WireFormat.STRING;
+        }
+        if (this.terminals != null && this.terminals.get(clazz)) {
+            return WireFormat.VALUE;
+        }
+        if (clazz.isArray()) {
+            final Class<?> componentType = clazz.getComponentType();
+            if (componentType.isPrimitive()) {
+                return WireFormat.PRIMITIVE_ARRAY;
+            }
+            if (isPrimitiveWrapper(componentType)) {
+                return WireFormat.WRAPPER_ARRAY;
+            }
+            return WireFormat.OBJECT_ARRAY;
+        }
+        if (obj instanceof Enum) {
+            return WireFormat.ENUM;
+        }
+        if (obj instanceof HashSet || obj instanceof HashMap || obj instanceof Hashtable) {
+            return WireFormat.HASH_COLLECTION;
+        }
+        return WireFormat.OBJECT;
+    }
+
+    private static boolean enterEquals(final TraversalContext context, final Proxy lhs, final Proxy rhs) {
         if (lhs.getClass() != rhs.getClass()) {
             return false;
         }
 
         if (lhs instanceof TerminalProxy) {
-            return lhs.equals(rhs);
+            return lhs == rhs || lhs.equals(rhs);
         }
 
-        if (this.lhsVisited.contains(lhsW)) {
-            return this.rhsVisited.contains(rhsW);
-        } else {
-            if (this.rhsVisited.contains(rhsW)) {
+        final Object paired = context.pairedWith(lhs);
+        if (paired != null) {
+            return paired == rhs;
+        }
+        if (context.rhsVisited.contains(rhs)) {
+            return false;
+        }
+        context.pair(lhs, rhs);
+
+        if (lhs instanceof HashCollectionProxy) {
+            final HashCollectionProxy lhsObj = (HashCollectionProxy) lhs;
+            final HashCollectionProxy rhsObj = (HashCollectionProxy) rhs;
+            if (lhsObj.typeId != rhsObj.typeId || lhsObj.values.size() != rhsObj.values.size()) {
                 return false;
             }
+            startMatching(context, lhsObj, rhsObj, 0);
+            return true;
         }
 
-        this.lhsVisited.add(lhsW);
-        this.rhsVisited.add(rhsW);
-
         if (lhs instanceof AbstractCompositeObjectProxy) {
             final AbstractCompositeObjectProxy lhsObj = (AbstractCompositeObjectProxy) lhs;
             final AbstractCompositeObjectProxy rhsObj = (AbstractCompositeObjectProxy) rhs;
-            if (lhsObj.typeName.equals(rhsObj.typeName)) {
-                final int size = lhsObj.values.size();
-                if (size == rhsObj.values.size()) {
-                    for (int i = 0; i < size; i++) {
-                        if (!deepEquals0(new W<>(lhsObj.values.get(i)), new W<>(rhsObj.values.get(i)))) {
-                            return false;
-                        }
-                    }
-                    return true;
+            if (lhsObj.typeId == rhsObj.typeId && lhsObj.values.size() == rhsObj.values.size()) {
+                if (Slots.isPacked(lhsObj.values, rhsObj.values)
+                        && !Arrays.equals(((Slots) lhsObj.values).bits, ((Slots) rhsObj.values).bits)) {
+                    return false;
                 }
+                context.pushPair(lhsObj, rhsObj);
+                return true;
             }
         }
         return false;
     }
 
+    static int unmatchedEntries(final HashCollectionProxy lhs, final HashCollectionProxy rhs, final int limit) {
+        final TraversalContext context = TraversalContext.acquire();
+        try {
+            context.pair(lhs, rhs);
+            startMatching(context, lhs, rhs, limit);
+            final double unmatched = drain(context, 0D, limit, true);
+            return unmatched > limit ? limit + 1 : (int) unmatched;
+        } finally {
+            TraversalContext.release(context);
+        }
+    }
+
+    private static void startMatching(final TraversalContext context,
+                                      final HashCollectionProxy lhs,
+                                      final HashCollectionProxy rhs,
+                                      final int limit) {
+        lhs.ensureSealed();
+        rhs.ensureSealed();
+        final int size = lhs.entryHashes.length;
+        if (size == 0) {
+            return;
+        }
+        context.pushPair(lhs, rhs);
+        final int frame = context.pairTop - 1;
+        final TraversalContext.Matching matching = context.pushMatching(frame, size, limit);
+        seekRun(matching, lhs.entryHashes[0], rhs.entryHashes);
+        context.pairCursors[frame] = -1;
+    }
+
+    private static int stepMatching(final TraversalContext context,
+                                    final HashCollectionProxy lhs,
+                                    final HashCollectionProxy rhs) {
+        final TraversalContext.Matching matching = context.topMatching();
+        final int frame = matching.frame;
+        final int element = context.pairCursors[frame];
+        final int arity = lhs.arity;
+        if (element < 0) {
+            int candidate = matching.candidate;
+            while (candidate < matching.runEnd && matching.used[candidate]) {
+                candidate++;
+            }
+            if (candidate == matching.runEnd) {
+                if (++matching.unmatched > matching.limit) {
+                    return finishMatching(context, matching);
+                }
+                return nextEntry(context, matching, lhs, rhs);
+            }
+            matching.candidate = candidate;
+            matching.mark = context.undoLog.size();
+            context.pairCursors[frame] = 0;
+            return -1;
+        }
+        if (element == arity) {
+            matching.used[matching.candidate] = true;
+            return nextEntry(context, matching, lhs, rhs);
+        }
+        context.pairCursors[frame] = element + 1;
+        if (!enterEquals(context,
+                lhs.values.get(matching.entry * arity + element),
+                rhs.values.get(matching.candidate * arity + element))) {
+            reject(context);
+        }
+        return -1;
+    }
+
+    private static int nextEntry(final TraversalContext context,
+                                 final TraversalContext.Matching matching,
+                                 final HashCollectionProxy lhs,
+                                 final HashCollectionProxy rhs) {
+        if (!advanceEntry(matching, lhs.entryHashes, rhs.entryHashes)) {
+            return finishMatching(context, matching);
+        }
+        context.pairCursors[matching.frame] = -1;
+        return -1;
+    }
+
+    private static boolean advanceEntry(final TraversalContext.Matching matching,
+                                        final int[] lhsHashes,
+                                        final int[] rhsHashes) {
+        final int entry = ++matching.entry;
+        if (entry == lhsHashes.length) {
+            return false;
+        }
+        if (lhsHashes[entry] != lhsHashes[entry - 1]) {
+            seekRun(matching, lhsHashes[entry], rhsHashes);
+        } else {
+            matching.candidate = matching.runStart;
+        }
+        return true;
+    }
+
+    private static void seekRun(final TraversalContext.Matching matching, final int hash, final int[] rhsHashes) {
+        int start = matching.runEnd;
+        while (start < rhsHashes.length && rhsHashes[start] < hash) {
+            start++;
+        }
+        int end = start;
+        while (end < rhsHashes.length && rhsHashes[end] == hash) {
+            end++;
+        }
+        matching.runStart = start;
+        matching.runEnd = end;
+        matching.candidate = start;
+    }
+
+    private static int finishMatching(final TraversalContext context, final TraversalContext.Matching matching) {
+        context.matchTop--;
+        context.popPair();
+        if (context.matchTop == 0) {
+            context.undoLog.clear();
+        }
+        return matching.unmatched;
+    }
+
+    private static void reject(final TraversalContext context) {
+        final TraversalContext.Matching matching = context.topMatching();
+        while (context.pairTop - 1 > matching.frame) {
+            context.popPair();
+        }
+        context.undo(matching.mark);
+        matching.candidate++;
+        context.pairCursors[matching.frame] = -1;
+    }
+
     public Object makeSerializable(final Object object) {
-        this.proxyCache.clear();
+        final Proxy snapshot;
+        final TraversalContext context = TraversalContext.acquire();
         try {
-            return makeSerializable0(new W<>(object), 0);
-        } catch (final IllegalAccessException ignored) {
-            throw new InternalError("Unexpected IllegalAccessException");
+            snapshot = makeSerializable0(context, object, 0);
+        } finally {
+            TraversalContext.release(context);
+        }
+        return canonicalize(snapshot);
+    }
+
+    public Stream<Difference> diff(final Object lhs, final Object rhs) {
+        if (!(lhs instanceof Proxy) || !(rhs instanceof Proxy)) {
+            throw new IllegalArgumentException("Not a snapshot produced by ObjectUtils.makeSerializable");
         }
+        final DiffIterator differences = new DiffIterator(this, (Proxy) lhs, (Proxy) rhs);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(differences,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
-    private Proxy makeSerializable0(final W<?> objW, final int depth) throws IllegalAccessException {
+    String[] fieldNamesOf(final int typeId, final int size) {
+        final String[] names = this.fieldNames.computeIfAbsent(typeId, this::resolveFieldNames);
+        return names.length == size ? names : null;
+    }
+
+    private String[] resolveFieldNames(final int typeId) {
+        final Class<?> clazz = classForName(TypeTable.nameOf(typeId));
+        if (clazz == null || clazz.isArray()) {
+            return new String[0];
+        }
+        final Field[] fields = this.layouts.get(clazz).fields;
+        final String[] names = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            names[i] = fields[i].getName();
+        }
+        return names;
+    }
+
+    private static Class<?> classForName(final String name) {
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        for (final ClassLoader loader : new ClassLoader[] {contextLoader, ObjectUtils.class.getClassLoader()}) {
+            try {
+                return Class.forName(name, false, loader);
+            } catch (final ClassNotFoundException | LinkageError ignored) { }
+        }
+        return null;
+    }
+
+    public SnapshotFootprint retainedSizeOf(final Object snapshot) {
+        if (!(snapshot instanceof Proxy)) {
+            throw new IllegalArgumentException("Not a snapshot produced by ObjectUtils.makeSerializable");
+        }
+        return Footprint.of((Proxy) snapshot);
+    }
+
+    public SnapshotSession newSession() {
+        return new SnapshotSession(this);
+    }
+
+    boolean isDepthUnbounded() {
+        return this.maxDepth == Integer.MAX_VALUE;
+    }
+
+    public Object makeSerializableLazily(final Object object) {
+        if (!isDepthUnbounded()) {
+            return makeSerializable(object);
+        }
+        return LazySnapshot.of(this, object);
+    }
+
+    public Object makeSerializable(final Object object, final ForkJoinPool pool) {
+        if (!isDepthUnbounded()) {
+            return makeSerializable(object);
+        }
+        return canonicalize(ParallelSnapshot.run(this, pool, object));
+    }
+
+    private Object canonicalize(final Proxy snapshot) {
+        return this.canonicalTable == null ? snapshot : this.canonicalTable.canonicalize(snapshot);
+    }
+
+    private Proxy makeSerializable0(final TraversalContext context, final Object root, final int rootDepth) {
+        final Proxy result = proxyFor(context, root, rootDepth);
+        while (context.top > 0) {
+            final int frame = context.top - 1;
+            final int index = context.cursors[frame];
+            if (index == context.lengths[frame]) {
+                context.pop();
+                continue;
+            }
+            context.cursors[frame] = index + 1;
+            final Object obj = context.objects[frame];
+            final FieldLayout layout = context.layouts[frame];
+            final List<Proxy> values = context.proxies[frame].values;
+            final int depth = context.depths[frame] + 1;
+            if (layout == null) {
+                values.set(index, proxyFor(context, ((Object[]) obj)[index], depth));
+            } else if (values instanceof Slots) {
+                final Slots slots = (Slots) values;
+                if (slots.isPrimitive(index)) {
+                    slots.setBits(index, layout.getBits(index, obj));
+                } else {
+                    slots.setReference(index, proxyFor(context, layout.get(index, obj), depth));
+                }
+            } else {
+                final byte kind = layout.kinds[index];
+                if (kind == FieldLayout.REFERENCE) {
+                    values.set(index, proxyFor(context, layout.get(index, obj), depth));
+                } else if (depth >= this.maxDepth) {
+                    values.set(index, Skipped.V);
+                } else {
+                    values.set(index, new PrimitiveOrWrapperProxy(kind, layout.getBits(index, obj)));
+                }
+            }
+        }
+        for (int i = context.collections.size() - 1; i >= 0; i--) {
+            context.collections.get(i).seal();
+        }
+        return result;
+    }
+
+    private Proxy proxyFor(final TraversalContext context, final Object obj, final int depth) {
         if (depth >= this.maxDepth) {
             return Skipped.V;
         }
 
-        final Proxy result = this.proxyCache.get(objW);
+        final Proxy result = context.proxyCache.get(obj);
 
         if (result != null) {
             return result;
         }
 
-        final Object obj = objW.value;
-
         if (obj == null) {
-            this.proxyCache.put(objW, Null.V);
+            context.proxyCache.put(null, Null.V);
             return Null.V;
         }
-        Class<?> clazz = obj.getClass();
+        final Class<?> clazz = obj.getClass();
+        final Proxy terminal = terminalProxyFor(obj, clazz);
 
-        if (isPrimitiveOrWrapper(clazz)) {
-            final Proxy proxy = new PrimitiveOrWrapperProxy(obj);
-            this.proxyCache.put(objW, proxy);
-            return proxy;
+        if (terminal != null) {
+            context.proxyCache.put(obj, terminal);
+            return terminal;
         }
 
-        if (obj instanceof HashSet || obj instanceof HashMap || obj instanceof Hashtable) {
-            this.proxyCache.put(objW, Skipped.V);
-            return Skipped.V;
+        if (obj instanceof HashSet) {
+            final Object[] elements = ((HashSet<?>) obj).toArray();
+            return hashCollectionProxyFor(context, obj, elements, 1, depth);
+        }
+
+        if (obj instanceof HashMap || obj instanceof Hashtable) {
+            return hashCollectionProxyFor(context, obj, flattenMap((Map<?, ?>) obj), 2, depth);
+        }
+
+        if (clazz.isArray()) {
+            final int length = ((Object[]) obj).length;
+            final ObjectArrayProxy proxy = new ObjectArrayProxy(clazz, Arrays.asList(new Proxy[length]));
+            context.proxyCache.put(obj, proxy);
+            context.push(obj, null, proxy, length, depth);
+            return proxy;
         }
 
+        final FieldLayout layout = this.layouts.get(clazz);
+        final int size = layout.kinds.length;
+        final ObjectProxy proxy = new ObjectProxy(clazz,
+                depth + 1 < this.maxDepth ? Slots.forLayout(layout) : Arrays.asList(new Proxy[size]));
+        context.proxyCache.put(obj, proxy);
+        context.push(obj, layout, proxy, size, depth);
+        return proxy;
+    }
+
+    Proxy terminalProxyFor(final Object obj, final Class<?> clazz) {
+        if (isPrimitiveOrWrapper(clazz)) {
+            return PrimitiveOrWrapperProxy.of(obj);
+        }
+        if (clazz == String.class) {
+            return new StringProxy((String) obj);
+        }
+        if (this.terminals != null && this.terminals.get(clazz)) {
+            final UnaryOperator<Object> copier = this.valueTypes.get(clazz);
+            return new ValueProxy(copier == null ? obj : copier.apply(obj));
+        }
         if (clazz.isArray()) {
-            final Proxy proxy;
             final Class<?> componentType = clazz.getComponentType();
             if (componentType.isPrimitive()) {
-                proxy = new PrimitiveOrWrapperArrayProxy(clonePrimitiveArray(obj));
-                this.proxyCache.put(objW, proxy);
-            } else if (isPrimitiveWrapper(componentType)) {
-                proxy = new PrimitiveOrWrapperArrayProxy(clonePrimitiveWrapperArray(obj));
-                this.proxyCache.put(objW, proxy);
-            } else {
-                final int length = Array.getLength(obj);
-                final List<Proxy> values = new ArrayList<>(length);
-                proxy = new ObjectArrayProxy(clazz, values);
-                this.proxyCache.put(objW, proxy);
-                for (int i = 0; i < length; i++) {
-                    values.add(makeSerializable0(new W<>(Array.get(obj, i)), depth + 1));
-                }
+                return PrimitiveArrayProxy.of(obj);
             }
-            return proxy;
+            if (isPrimitiveWrapper(componentType)) {
+                return new PrimitiveWrapperArrayProxy(((Object[]) obj).clone());
+            }
+            return null;
         }
-
-        if (clazz.isEnum()) {
-            final Proxy proxy = new EnumProxy((Enum<?>) obj);
-            this.proxyCache.put(objW, proxy);
-            return proxy;
+        if (obj instanceof Enum) {
+            return new EnumProxy((Enum<?>) obj);
         }
+        return null;
+    }
 
-        final List<Proxy> fieldValues = new ArrayList<>();
-        final Proxy proxy = new ObjectProxy(clazz, fieldValues);
-        this.proxyCache.put(objW, proxy);
-        int inheritanceDepth = 0;
-        while (clazz != null && inheritanceDepth < this.maxInheritanceDepth) {
-            final Field[] fields = clazz.getDeclaredFields();
-            AccessibleObject.setAccessible(fields, true);
-            for (final Field field : fields) {
-                if (Modifier.isStatic(field.getModifiers())
-                        || !this.included.test(field)
-                        || field.getName().contains("$")) {
-                    continue;
-                }
-                fieldValues.add(makeSerializable0(new W<>(field.get(obj)), depth + 1));
-            }
-            clazz = clazz.getSuperclass();
-            inheritanceDepth++;
+    FieldLayout layoutOf(final Class<?> clazz) {
+        return this.layouts.get(clazz);
+    }
+
+    static Object[] flattenMap(final Map<?, ?> map) {
+        final Object[] entries = new Object[map.size() << 1];
+        int i = 0;
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            entries[i++] = entry.getKey();
+            entries[i++] = entry.getValue();
         }
+        return entries;
+    }
 
+    private static Proxy hashCollectionProxyFor(final TraversalContext context,
+                                                final Object collection,
+                                                final Object[] flattened,
+                                                final int arity,
+                                                final int depth) {
+        final HashCollectionProxy proxy =
+                new HashCollectionProxy(collection.getClass(), Arrays.asList(new Proxy[flattened.length]), arity);
+        context.proxyCache.put(collection, proxy);
+        context.collections.add(proxy);
+        context.push(flattened, null, proxy, flattened.length, depth);
         return proxy;
     }
 
-    private static Object clonePrimitiveArray(final Object array) {
-        if (array instanceof int[]) {
-            return ((int[]) array).clone();
-        } else if (array instanceof long[]) {
-            return ((long[]) array).clone();
-        } else if (array instanceof short[]) {
-            return ((short[]) array).clone();
-        } else if (array instanceof byte[]) {
-            return ((byte[]) array).clone();
-        } else if (array instanceof boolean[]) {
-            return ((boolean[]) array).clone();
-        } else if (array instanceof char[]) {
-            return ((char[]) array).clone();
-        } else if (array instanceof float[]) {
-            return ((float[]) array).clone();
-        } else if (array instanceof double[]) {
-            return ((double[]) array).clone();
-        }
-        throw new IllegalArgumentException("Not a primitive-typed array");
-    }
-
-    private static Object clonePrimitiveWrapperArray(final Object array) {
-        if (array instanceof Integer[]) {
-            return ((Integer[]) array).clone();
-        } else if (array instanceof Long[]) {
-            return ((Long[]) array).clone();
-        } else if (array instanceof Short[]) {
-            return ((Short[]) array).clone();
-        } else if (array instanceof Byte[]) {
-            return ((Byte[]) array).clone();
-        } else if (array instanceof Boolean[]) {
-            return ((Boolean[]) array).clone();
-        } else if (array instanceof Character[]) {
-            return ((Character[]) array).clone();
-        } else if (array instanceof Float[]) {
-            return ((Float[]) array).clone();
-        } else if (array instanceof Double[]) {
-            return ((Double[]) array).clone();
-        } else if (array instanceof Void[]) {
-            return ((Void[]) array).clone();
-        }
-        throw new IllegalArgumentException("Not a primitive wrapper array");
+    public double extendedHammingDistance(final Object lhs, final Object rhs) {
+        final TraversalContext context = TraversalContext.acquire();
+        try {
+            return compare(context, (Proxy) lhs, (Proxy) rhs, Double.POSITIVE_INFINITY, true);
+        } finally {
+            TraversalContext.release(context);
+        }
     }
 
-    public double extendedHammingDistance(final Object lhs, final Object rhs) {
-        this.lhsVisited.clear();
-        this.rhsVisited.clear();
-        return extendedHammingDistance0(new W<>((Proxy) lhs), new W<>((Proxy) rhs));
+    public double extendedHammingDistance(final Object lhs, final Object rhs, final double maxDistance) {
+        if (!(maxDistance >= 0D)) {
+            throw new IllegalArgumentException("Maximum distance must be non-negative: " + maxDistance);
+        }
+        final TraversalContext context = TraversalContext.acquire();
+        try {
+            return compare(context, (Proxy) lhs, (Proxy) rhs, maxDistance, true);
+        } finally {
+            TraversalContext.release(context);
+        }
     }
 
-    private double extendedHammingDistance0(final W<Proxy> lhsW, final W<Proxy> rhsW) {
-        final Proxy lhs = lhsW.value;
-        final Proxy rhs = rhsW.value;
+    public double[] extendedHammingDistances(final Object snapshot, final List<?> snapshots) {
+        return extendedHammingDistances(snapshot, snapshots, ForkJoinPool.commonPool());
+    }
 
-        if (lhs == rhs) {
+    public double[] extendedHammingDistances(final Object snapshot, final List<?> snapshots, final ForkJoinPool pool) {
+        return DistanceBatch.oneToMany(this, pool, snapshot, snapshots);
+    }
+
+    public double[] extendedHammingDistanceMatrix(final List<?> snapshots, final boolean upperTriangular) {
+        return extendedHammingDistanceMatrix(snapshots, upperTriangular, ForkJoinPool.commonPool());
+    }
+
+    public double[] extendedHammingDistanceMatrix(final List<?> snapshots,
+                                                  final boolean upperTriangular,
+                                                  final ForkJoinPool pool) {
+        return DistanceBatch.matrix(this, pool, snapshots, upperTriangular);
+    }
+
+    public static int upperTriangularIndex(final int n, final int i, final int j) {
+        if (i < 0 || i >= j || j >= n) {
+            throw new IndexOutOfBoundsException("Expected 0 <= i < j < n, got i=" + i + ", j=" + j + ", n=" + n);
+        }
+        return DistanceBatch.triangularIndex(n, i, j);
+    }
+
+    private static int limitOf(final double remaining) {
+        return remaining >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) remaining;
+    }
+
+    private static double enterDistance(final TraversalContext context,
+                                        final Proxy lhs,
+                                        final Proxy rhs,
+                                        final int limit) {
+        if (lhs == rhs && lhs instanceof TerminalProxy) {
             return 0D;
         }
 
@@ -291,25 +1147,42 @@ public final class ObjectUtils {
         if (lhs instanceof PrimitiveOrWrapperProxy) {
             final PrimitiveOrWrapperProxy lhsObj = (PrimitiveOrWrapperProxy) lhs;
             final PrimitiveOrWrapperProxy rhsObj = (PrimitiveOrWrapperProxy) rhs;
-            if (lhsObj.obj.equals(rhsObj.obj)) {
+            if (lhsObj.equals(rhsObj)) {
                 return 0D;
             }
             return 1D;
         }
 
-        if (lhs instanceof PrimitiveOrWrapperArrayProxy) {
-            final Object lhsArray = ((PrimitiveOrWrapperArrayProxy) lhs).array;
-            final Object rhsArray = ((PrimitiveOrWrapperArrayProxy) rhs).array;
-            if (lhsArray.getClass().getComponentType() != rhsArray.getClass().getComponentType()) {
+        if (lhs instanceof StringProxy) {
+            return ((StringProxy) lhs).mismatches((StringProxy) rhs);
+        }
+
+        if (lhs instanceof ValueProxy) {
+            return lhs.equals(rhs) ? 0D : 1D;
+        }
+
+        if (lhs instanceof PrimitiveArrayProxy) {
+            final PrimitiveArrayProxy lhsArray = (PrimitiveArrayProxy) lhs;
+            final PrimitiveArrayProxy rhsArray = (PrimitiveArrayProxy) rhs;
+            if (lhsArray.length() != rhsArray.length()) {
+                return 1D;
+            }
+            return lhsArray.mismatches(rhsArray);
+        }
+
+        if (lhs instanceof PrimitiveWrapperArrayProxy) {
+            final Object[] lhsArray = ((PrimitiveWrapperArrayProxy) lhs).array;
+            final Object[] rhsArray = ((PrimitiveWrapperArrayProxy) rhs).array;
+            if (lhsArray.getClass() != rhsArray.getClass()) {
                 return 1D;
             }
-            final int length = Array.getLength(lhsArray);
-            if (length != Array.getLength(rhsArray)) {
+            final int length = lhsArray.length;
+            if (length != rhsArray.length) {
                 return 1D;
             }
             double distance = 0D;
             for (int i = 0; i < length; i++) {
-                if (!Objects.equals(Array.get(lhsArray, i), Array.get(rhsArray, i))) {
+                if (!Objects.equals(lhsArray[i], rhsArray[i])) {
                     distance += 1D;
                 }
             }
@@ -319,40 +1192,44 @@ public final class ObjectUtils {
         if (lhs instanceof EnumProxy) {
             final EnumProxy lhsEnum = (EnumProxy) lhs;
             final EnumProxy rhsEnum = (EnumProxy) rhs;
-            if (lhsEnum.typeName.equals(rhsEnum.typeName) && lhsEnum.constName.equals(rhsEnum.constName)) {
+            if (lhsEnum.typeId == rhsEnum.typeId && lhsEnum.constName.equals(rhsEnum.constName)) {
                 return 0D;
             }
             return 1D;
         }
 
-        if (this.lhsVisited.contains(lhsW)) {
-            return this.rhsVisited.contains(rhsW) ? 0D : 1D;
-        } else {
-            if (this.rhsVisited.contains(rhsW)) {
+        final Object paired = context.pairedWith(lhs);
+        if (paired != null) {
+            return paired == rhs ? 0D : 1D;
+        }
+        if (context.rhsVisited.contains(rhs)) {
+            return 1D;
+        }
+        context.pair(lhs, rhs);
+
+        if (lhs instanceof HashCollectionProxy) {
+            final HashCollectionProxy lhsObj = (HashCollectionProxy) lhs;
+            final HashCollectionProxy rhsObj = (HashCollectionProxy) rhs;
+            if (lhsObj.typeId != rhsObj.typeId || lhsObj.values.size() != rhsObj.values.size()) {
                 return 1D;
             }
+            startMatching(context, lhsObj, rhsObj, limit);
+            return 0D;
         }
 
-        this.lhsVisited.add(lhsW);
-        this.rhsVisited.add(rhsW);
-
         if (lhs instanceof AbstractCompositeObjectProxy) {
             final AbstractCompositeObjectProxy lhsObj = (AbstractCompositeObjectProxy) lhs;
             final AbstractCompositeObjectProxy rhsObj = (AbstractCompositeObjectProxy) rhs;
-            if (!lhsObj.typeName.equals(rhsObj.typeName)) {
+            if (lhsObj.typeId != rhsObj.typeId) {
                 return 1D;
             }
-            final int size = lhsObj.values.size();
-            if (size != rhsObj.values.size()) {
+            if (lhsObj.values.size() != rhsObj.values.size()) {
                 return 1D;
             }
-            double distance = 0D;
-            for (int i = 0; i < size; i++) {
-                distance += extendedHammingDistance0(new W<>(lhsObj.values.get(i)), new W<>(rhsObj.values.get(i)));
-            }
-            return distance;
+            context.pushPair(lhsObj, rhsObj);
+            return 0D;
         }
 
         throw new IllegalArgumentException();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,274 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+
+final class ParallelSnapshot {
+    private static final int SPLIT_THRESHOLD = 1 << 10;
+
+    private static final int SURPLUS_THRESHOLD = 2;
+
+    private final ObjectUtils config;
+
+    private final ConcurrentHashMap<IdentityKey, Proxy> proxyCache;
+
+    private final Object root;
+
+    private final boolean forking;
+
+    private Proxy result;
+
+    private volatile boolean hasCollections;
+
+    private ParallelSnapshot(final ObjectUtils config, final Object root, final boolean forking) {
+        this.config = config;
+        this.proxyCache = new ConcurrentHashMap<>();
+        this.root = root;
+        this.forking = forking;
+    }
+
+    static Proxy run(final ObjectUtils config, final ForkJoinPool pool, final Object root) {
+        final ParallelSnapshot snapshot = new ParallelSnapshot(config, root, pool.getParallelism() > 1);
+        pool.invoke(snapshot.new SnapshotTask(null, null));
+        final Proxy result = snapshot.result;
+        if (snapshot.hasCollections) {
+            sealCollections(result);
+        }
+        return result;
+    }
+
+    private Proxy proxyFor(final SnapshotTask task, final Object obj) {
+        if (obj == null) {
+            return Null.V;
+        }
+        final IdentityKey key = new IdentityKey(obj);
+        final Proxy cached = this.proxyCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final Class<?> clazz = obj.getClass();
+        final Proxy terminal = this.config.terminalProxyFor(obj, clazz);
+        if (terminal != null) {
+            final Proxy previous = this.proxyCache.putIfAbsent(key, terminal);
+            return previous == null ? terminal : previous;
+        }
+        final Object[] elements;
+        final FieldLayout layout;
+        final AbstractCompositeObjectProxy proxy;
+        if (obj instanceof HashSet) {
+            elements = ((HashSet<?>) obj).toArray();
+            layout = null;
+            proxy = new HashCollectionProxy(clazz, Arrays.asList(new Proxy[elements.length]), 1);
+        } else if (obj instanceof HashMap || obj instanceof Hashtable) {
+            elements = ObjectUtils.flattenMap((Map<?, ?>) obj);
+            layout = null;
+            proxy = new HashCollectionProxy(clazz, Arrays.asList(new Proxy[elements.length]), 2);
+        } else if (clazz.isArray()) {
+            elements = (Object[]) obj;
+            layout = null;
+            proxy = new ObjectArrayProxy(clazz, Arrays.asList(new Proxy[elements.length]));
+        } else {
+            elements = null;
+            layout = this.config.layoutOf(clazz);
+            proxy = new ObjectProxy(clazz, Slots.forLayout(layout));
+        }
+        final Proxy previous = this.proxyCache.putIfAbsent(key, proxy);
+        if (previous != null) {
+            return previous;
+        }
+        if (proxy instanceof HashCollectionProxy) {
+            this.hasCollections = true;
+        }
+        if (elements == null) {
+            task.schedule(new Work(obj, layout, proxy.values, 0, layout.kinds.length));
+        } else {
+            task.schedule(new Work(elements, null, proxy.values, 0, elements.length));
+        }
+        return proxy;
+    }
+
+    private static void sealCollections(final Proxy root) {
+        if (!(root instanceof AbstractCompositeObjectProxy)) {
+            return;
+        }
+        final TraversalContext context = TraversalContext.acquire();
+        try {
+            final List<HashCollectionProxy> collections = new ArrayList<>();
+            final AbstractCompositeObjectProxy composite = (AbstractCompositeObjectProxy) root;
+            context.lhsVisited.add(composite);
+            enter(context, collections, composite);
+            while (context.pairTop > 0) {
+                final int frame = context.pairTop - 1;
+                final AbstractCompositeObjectProxy node = context.lhsFrames[frame];
+                final int index = context.pairCursors[frame];
+                if (index == node.values.size()) {
+                    context.popPair();
+                    continue;
+                }
+                context.pairCursors[frame] = index + 1;
+                final Proxy child = node.values.get(index);
+                if (child instanceof AbstractCompositeObjectProxy && context.lhsVisited.add(child)) {
+                    enter(context, collections, (AbstractCompositeObjectProxy) child);
+                }
+            }
+            for (int i = collections.size() - 1; i >= 0; i--) {
+                collections.get(i).seal();
+            }
+        } finally {
+            TraversalContext.release(context);
+        }
+    }
+
+    private static void enter(final TraversalContext context,
+                              final List<HashCollectionProxy> collections,
+                              final AbstractCompositeObjectProxy composite) {
+        if (composite instanceof HashCollectionProxy) {
+            collections.add((HashCollectionProxy) composite);
+        }
+        context.pushPair(composite, null);
+    }
+
+    private static final class IdentityKey {
+        private final Object referent;
+
+        private final int hash;
+
+        IdentityKey(final Object referent) {
+            this.referent = referent;
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).referent == this.referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static final class Work {
+        final Object obj;
+
+        final FieldLayout layout;
+
+        final List<Proxy> values;
+
+        final int from;
+
+        int to;
+
+        Work(final Object obj, final FieldLayout layout, final List<Proxy> values, final int from, final int to) {
+            this.obj = obj;
+            this.layout = layout;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private final class SnapshotTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayDeque<Work> worklist;
+
+        SnapshotTask(final SnapshotTask parent, final Work work) {
+            super(parent);
+            this.worklist = new ArrayDeque<>();
+            if (work != null) {
+                this.worklist.push(work);
+            }
+        }
+
+        void schedule(final Work work) {
+            if (forking && getSurplusQueuedTaskCount() < SURPLUS_THRESHOLD) {
+                fork(work);
+            } else {
+                this.worklist.push(work);
+            }
+        }
+
+        private void fork(final Work work) {
+            addToPendingCount(1);
+            new SnapshotTask(this, work).fork();
+        }
+
+        @Override
+        public void compute() {
+            if (getCompleter() == null) {
+                result = proxyFor(this, root);
+            }
+            for (Work work; (work = this.worklist.poll()) != null; ) {
+                while (forking && work.layout == null && work.to - work.from > SPLIT_THRESHOLD) {
+                    final int mid = (work.from + work.to) >>> 1;
+                    fork(new Work(work.obj, null, work.values, mid, work.to));
+                    work.to = mid;
+                }
+                process(work);
+            }
+            tryComplete();
+        }
+
+        private void process(final Work work) {
+            final List<Proxy> values = work.values;
+            if (work.layout == null) {
+                final Object[] elements = (Object[]) work.obj;
+                for (int i = work.from; i < work.to; i++) {
+                    values.set(i, proxyFor(this, elements[i]));
+                }
+                return;
+            }
+            final FieldLayout layout = work.layout;
+            if (values instanceof Slots) {
+                final Slots slots = (Slots) values;
+                for (int i = work.from; i < work.to; i++) {
+                    if (layout.kinds[i] == FieldLayout.REFERENCE) {
+                        slots.setReference(i, proxyFor(this, layout.get(i, work.obj)));
+                    } else {
+                        slots.setBits(i, layout.getBits(i, work.obj));
+                    }
+                }
+                return;
+            }
+            for (int i = work.from; i < work.to; i++) {
+                final byte kind = layout.kinds[i];
+                if (kind == FieldLayout.REFERENCE) {
+                    values.set(i, proxyFor(this, layout.get(i, work.obj)));
+                } else {
+                    values.set(i, new PrimitiveOrWrapperProxy(kind, layout.getBits(i, work.obj)));
+                }
+            }
+        }
+    }
+}
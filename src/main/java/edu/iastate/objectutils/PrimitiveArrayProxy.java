@@ -0,0 +1,521 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+abstract class PrimitiveArrayProxy implements TerminalProxy {
+    private static final long serialVersionUID = 1L;
+
+    private transient int hash;
+
+    abstract byte kind();
+
+    abstract int length();
+
+    abstract long bitsAt(int index);
+
+    Object get(final int index) {
+        return WireFormat.toWrapper(kind(), bitsAt(index));
+    }
+
+    abstract int mismatches(PrimitiveArrayProxy that);
+
+    abstract boolean contentEquals(Object array);
+
+    abstract int arrayHashCode();
+
+    @Override
+    public int hashCode() {
+        int h = this.hash;
+        if (h == 0) {
+            h = arrayHashCode();
+            this.hash = h;
+        }
+        return h;
+    }
+
+    static boolean arraysEqual(final Object lhs, final Object rhs) {
+        if (lhs instanceof int[]) {
+            return rhs instanceof int[] && Arrays.equals((int[]) lhs, (int[]) rhs);
+        } else if (lhs instanceof long[]) {
+            return rhs instanceof long[] && Arrays.equals((long[]) lhs, (long[]) rhs);
+        } else if (lhs instanceof short[]) {
+            return rhs instanceof short[] && Arrays.equals((short[]) lhs, (short[]) rhs);
+        } else if (lhs instanceof byte[]) {
+            return rhs instanceof byte[] && Arrays.equals((byte[]) lhs, (byte[]) rhs);
+        } else if (lhs instanceof boolean[]) {
+            return rhs instanceof boolean[] && Arrays.equals((boolean[]) lhs, (boolean[]) rhs);
+        } else if (lhs instanceof char[]) {
+            return rhs instanceof char[] && Arrays.equals((char[]) lhs, (char[]) rhs);
+        } else if (lhs instanceof float[]) {
+            return rhs instanceof float[] && Arrays.equals((float[]) lhs, (float[]) rhs);
+        } else if (lhs instanceof double[]) {
+            return rhs instanceof double[] && Arrays.equals((double[]) lhs, (double[]) rhs);
+        }
+        throw new IllegalArgumentException("Not a primitive-typed array");
+    }
+
+    static PrimitiveArrayProxy of(final Object array) {
+        if (array instanceof int[]) {
+            return new OfInt(((int[]) array).clone());
+        } else if (array instanceof long[]) {
+            return new OfLong(((long[]) array).clone());
+        } else if (array instanceof short[]) {
+            return new OfShort(((short[]) array).clone());
+        } else if (array instanceof byte[]) {
+            return new OfByte(((byte[]) array).clone());
+        } else if (array instanceof boolean[]) {
+            return new OfBoolean(((boolean[]) array).clone());
+        } else if (array instanceof char[]) {
+            return new OfChar(((char[]) array).clone());
+        } else if (array instanceof float[]) {
+            return new OfFloat(((float[]) array).clone());
+        } else if (array instanceof double[]) {
+            return new OfDouble(((double[]) array).clone());
+        }
+        throw new IllegalArgumentException("Not a primitive-typed array");
+    }
+
+    static final class OfInt extends PrimitiveArrayProxy {
+        private static final long serialVersionUID = 1L;
+
+        final int[] array;
+
+        OfInt(final int[] array) {
+            this.array = array;
+        }
+
+        @Override
+        byte kind() {
+            return PrimitiveOrWrapperProxy.INT;
+        }
+
+        @Override
+        int length() {
+            return this.array.length;
+        }
+
+        @Override
+        long bitsAt(final int index) {
+            return this.array[index];
+        }
+
+        @Override
+        int mismatches(final PrimitiveArrayProxy that) {
+            final int[] a = this.array;
+            final int[] b = ((OfInt) that).array;
+            int count = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        boolean contentEquals(final Object array) {
+            return array instanceof int[] && Arrays.equals(this.array, (int[]) array);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof OfInt && Arrays.equals(this.array, ((OfInt) o).array));
+        }
+
+        @Override
+        int arrayHashCode() {
+            return Arrays.hashCode(this.array);
+        }
+    }
+
+    static final class OfLong extends PrimitiveArrayProxy {
+        private static final long serialVersionUID = 1L;
+
+        final long[] array;
+
+        OfLong(final long[] array) {
+            this.array = array;
+        }
+
+        @Override
+        byte kind() {
+            return PrimitiveOrWrapperProxy.LONG;
+        }
+
+        @Override
+        int length() {
+            return this.array.length;
+        }
+
+        @Override
+        long bitsAt(final int index) {
+            return this.array[index];
+        }
+
+        @Override
+        int mismatches(final PrimitiveArrayProxy that) {
+            final long[] a = this.array;
+            final long[] b = ((OfLong) that).array;
+            int count = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        boolean contentEquals(final Object array) {
+            return array instanceof long[] && Arrays.equals(this.array, (long[]) array);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof OfLong && Arrays.equals(this.array, ((OfLong) o).array));
+        }
+
+        @Override
+        int arrayHashCode() {
+            return Arrays.hashCode(this.array);
+        }
+    }
+
+    static final class OfShort extends PrimitiveArrayProxy {
+        private static final long serialVersionUID = 1L;
+
+        final short[] array;
+
+        OfShort(final short[] array) {
+            this.array = array;
+        }
+
+        @Override
+        byte kind() {
+            return PrimitiveOrWrapperProxy.SHORT;
+        }
+
+        @Override
+        int length() {
+            return this.array.length;
+        }
+
+        @Override
+        long bitsAt(final int index) {
+            return this.array[index];
+        }
+
+        @Override
+        int mismatches(final PrimitiveArrayProxy that) {
+            final short[] a = this.array;
+            final short[] b = ((OfShort) that).array;
+            int count = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        boolean contentEquals(final Object array) {
+            return array instanceof short[] && Arrays.equals(this.array, (short[]) array);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof OfShort && Arrays.equals(this.array, ((OfShort) o).array));
+        }
+
+        @Override
+        int arrayHashCode() {
+            return Arrays.hashCode(this.array);
+        }
+    }
+
+    static final class OfByte extends PrimitiveArrayProxy {
+        private static final long serialVersionUID = 1L;
+
+        final byte[] array;
+
+        OfByte(final byte[] array) {
+            this.array = array;
+        }
+
+        @Override
+        byte kind() {
+            return PrimitiveOrWrapperProxy.BYTE;
+        }
+
+        @Override
+        int length() {
+            return this.array.length;
+        }
+
+        @Override
+        long bitsAt(final int index) {
+            return this.array[index];
+        }
+
+        @Override
+        int mismatches(final PrimitiveArrayProxy that) {
+            final byte[] a = this.array;
+            final byte[] b = ((OfByte) that).array;
+            int count = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        boolean contentEquals(final Object array) {
+            return array instanceof byte[] && Arrays.equals(this.array, (byte[]) array);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof OfByte && Arrays.equals(this.array, ((OfByte) o).array));
+        }
+
+        @Override
+        int arrayHashCode() {
+            return Arrays.hashCode(this.array);
+        }
+    }
+
+    static final class OfBoolean extends PrimitiveArrayProxy {
+        private static final long serialVersionUID = 1L;
+
+        final boolean[] array;
+
+        OfBoolean(final boolean[] array) {
+            this.array = array;
+        }
+
+        @Override
+        byte kind() {
+            return PrimitiveOrWrapperProxy.BOOLEAN;
+        }
+
+        @Override
+        int length() {
+            return this.array.length;
+        }
+
+        @Override
+        long bitsAt(final int index) {
+            return this.array[index] ? 1L : 0L;
+        }
+
+        @Override
+        int mismatches(final PrimitiveArrayProxy that) {
+            final boolean[] a = this.array;
+            final boolean[] b = ((OfBoolean) that).array;
+            int count = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        boolean contentEquals(final Object array) {
+            return array instanceof boolean[] && Arrays.equals(this.array, (boolean[]) array);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof OfBoolean && Arrays.equals(this.array, ((OfBoolean) o).array));
+        }
+
+        @Override
+        int arrayHashCode() {
+            return Arrays.hashCode(this.array);
+        }
+    }
+
+    static final class OfChar extends PrimitiveArrayProxy {
+        private static final long serialVersionUID = 1L;
+
+        final char[] array;
+
+        OfChar(final char[] array) {
+            this.array = array;
+        }
+
+        @Override
+        byte kind() {
+            return PrimitiveOrWrapperProxy.CHAR;
+        }
+
+        @Override
+        int length() {
+            return this.array.length;
+        }
+
+        @Override
+        long bitsAt(final int index) {
+            return this.array[index];
+        }
+
+        @Override
+        int mismatches(final PrimitiveArrayProxy that) {
+            final char[] a = this.array;
+            final char[] b = ((OfChar) that).array;
+            int count = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        boolean contentEquals(final Object array) {
+            return array instanceof char[] && Arrays.equals(this.array, (char[]) array);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof OfChar && Arrays.equals(this.array, ((OfChar) o).array));
+        }
+
+        @Override
+        int arrayHashCode() {
+            return Arrays.hashCode(this.array);
+        }
+    }
+
+    static final class OfFloat extends PrimitiveArrayProxy {
+        private static final long serialVersionUID = 1L;
+
+        final float[] array;
+
+        OfFloat(final float[] array) {
+            this.array = array;
+        }
+
+        @Override
+        byte kind() {
+            return PrimitiveOrWrapperProxy.FLOAT;
+        }
+
+        @Override
+        int length() {
+            return this.array.length;
+        }
+
+        @Override
+        long bitsAt(final int index) {
+            return Float.floatToIntBits(this.array[index]);
+        }
+
+        @Override
+        int mismatches(final PrimitiveArrayProxy that) {
+            final float[] a = this.array;
+            final float[] b = ((OfFloat) that).array;
+            int count = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (Float.floatToIntBits(a[i]) != Float.floatToIntBits(b[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        boolean contentEquals(final Object array) {
+            return array instanceof float[] && Arrays.equals(this.array, (float[]) array);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof OfFloat && Arrays.equals(this.array, ((OfFloat) o).array));
+        }
+
+        @Override
+        int arrayHashCode() {
+            return Arrays.hashCode(this.array);
+        }
+    }
+
+    static final class OfDouble extends PrimitiveArrayProxy {
+        private static final long serialVersionUID = 1L;
+
+        final double[] array;
+
+        OfDouble(final double[] array) {
+            this.array = array;
+        }
+
+        @Override
+        byte kind() {
+            return PrimitiveOrWrapperProxy.DOUBLE;
+        }
+
+        @Override
+        int length() {
+            return this.array.length;
+        }
+
+        @Override
+        long bitsAt(final int index) {
+            return Double.doubleToLongBits(this.array[index]);
+        }
+
+        @Override
+        int mismatches(final PrimitiveArrayProxy that) {
+            final double[] a = this.array;
+            final double[] b = ((OfDouble) that).array;
+            int count = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (Double.doubleToLongBits(a[i]) != Double.doubleToLongBits(b[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        boolean contentEquals(final Object array) {
+            return array instanceof double[] && Arrays.equals(this.array, (double[]) array);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof OfDouble && Arrays.equals(this.array, ((OfDouble) o).array));
+        }
+
+        @Override
+        int arrayHashCode() {
+            return Arrays.hashCode(this.array);
+        }
+    }
+}
@@ -23,10 +23,71 @@ package edu.iastate.objectutils;
 class PrimitiveOrWrapperProxy implements TerminalProxy {
     private static final long serialVersionUID = 1L;
 
-    final Object obj;
+    static final byte BOOLEAN = 0;
 
-    public PrimitiveOrWrapperProxy(final Object obj) {
-        this.obj = obj;
+    static final byte BYTE = 1;
+
+    static final byte CHAR = 2;
+
+    static final byte SHORT = 3;
+
+    static final byte INT = 4;
+
+    static final byte LONG = 5;
+
+    static final byte FLOAT = 6;
+
+    static final byte DOUBLE = 7;
+
+    final byte kind;
+
+    final long bits;
+
+    PrimitiveOrWrapperProxy(final byte kind, final long bits) {
+        this.kind = kind;
+        this.bits = bits;
+    }
+
+    static PrimitiveOrWrapperProxy of(final Object wrapper) {
+        if (wrapper instanceof Integer) {
+            return new PrimitiveOrWrapperProxy(INT, (Integer) wrapper);
+        } else if (wrapper instanceof Long) {
+            return new PrimitiveOrWrapperProxy(LONG, (Long) wrapper);
+        } else if (wrapper instanceof Double) {
+            return new PrimitiveOrWrapperProxy(DOUBLE, Double.doubleToLongBits((Double) wrapper));
+        } else if (wrapper instanceof Float) {
+            return new PrimitiveOrWrapperProxy(FLOAT, Float.floatToIntBits((Float) wrapper));
+        } else if (wrapper instanceof Boolean) {
+            return new PrimitiveOrWrapperProxy(BOOLEAN, (Boolean) wrapper ? 1L : 0L);
+        } else if (wrapper instanceof Character) {
+            return new PrimitiveOrWrapperProxy(CHAR, (Character) wrapper);
+        } else if (wrapper instanceof Short) {
+            return new PrimitiveOrWrapperProxy(SHORT, (Short) wrapper);
+        } else if (wrapper instanceof Byte) {
+            return new PrimitiveOrWrapperProxy(BYTE, (Byte) wrapper);
+        }
+        throw new IllegalArgumentException("Not a primitive wrapper");
+    }
+
+    static byte kindOf(final Class<?> primitiveType) {
+        if (primitiveType == int.class) {
+            return INT;
+        } else if (primitiveType == long.class) {
+            return LONG;
+        } else if (primitiveType == double.class) {
+            return DOUBLE;
+        } else if (primitiveType == float.class) {
+            return FLOAT;
+        } else if (primitiveType == boolean.class) {
+            return BOOLEAN;
+        } else if (primitiveType == char.class) {
+            return CHAR;
+        } else if (primitiveType == short.class) {
+            return SHORT;
+        } else if (primitiveType == byte.class) {
+            return BYTE;
+        }
+        throw new IllegalArgumentException("Not a primitive type");
     }
 
     @Override
@@ -38,6 +99,15 @@ class PrimitiveOrWrapperProxy implements TerminalProxy {
             return false;
         }
         final PrimitiveOrWrapperProxy that = (PrimitiveOrWrapperProxy) o;
-        return this.obj.equals(that.obj);
+        return this.kind == that.kind && this.bits == that.bits;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCodeOf(this.kind, this.bits);
+    }
+
+    static int hashCodeOf(final byte kind, final long bits) {
+        return 31 * kind + Long.hashCode(bits);
     }
 }
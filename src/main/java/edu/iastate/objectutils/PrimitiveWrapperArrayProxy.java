@@ -20,18 +20,15 @@ package edu.iastate.objectutils;
  * #L%
  */
 
-import java.lang.reflect.Array;
-import java.util.Objects;
+import java.util.Arrays;
 
-class PrimitiveOrWrapperArrayProxy implements TerminalProxy {
+class PrimitiveWrapperArrayProxy implements TerminalProxy {
     private static final long serialVersionUID = 1L;
 
-    final Object array;
+    final Object[] array;
 
-    public PrimitiveOrWrapperArrayProxy(final Object array) {
-        final int length = Array.getLength(array);
+    public PrimitiveWrapperArrayProxy(final Object[] array) {
         this.array = array;
-
     }
 
     @Override
@@ -39,19 +36,15 @@ class PrimitiveOrWrapperArrayProxy implements TerminalProxy {
         if (this == o) {
             return true;
         }
-        if (!(o instanceof PrimitiveOrWrapperArrayProxy)) {
-            return false;
-        }
-        final PrimitiveOrWrapperArrayProxy that = (PrimitiveOrWrapperArrayProxy) o;
-        final int length = Array.getLength(this.array);
-        if (length != Array.getLength(that.array)) {
+        if (!(o instanceof PrimitiveWrapperArrayProxy)) {
             return false;
         }
-        for (int i = 0; i < length; i++) {
-            if (!Objects.equals(Array.get(this.array, i), Array.get(that.array, i))) {
-                return false;
-            }
-        }
-        return true;
+        final PrimitiveWrapperArrayProxy that = (PrimitiveWrapperArrayProxy) o;
+        return Arrays.equals(this.array, that.array);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.array);
     }
 }
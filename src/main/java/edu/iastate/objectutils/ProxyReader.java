@@ -0,0 +1,385 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class ProxyReader {
+    private static final int CHANNEL_BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel source;
+
+    private final ByteBuffer in;
+
+    private final List<Proxy> nodes;
+
+    private final List<Integer> types;
+
+    private final List<HashCollectionProxy> collections;
+
+    private AbstractCompositeObjectProxy[] frames;
+
+    private int[] remaining;
+
+    private int top;
+
+    private ProxyReader(final ReadableByteChannel source, final ByteBuffer in) {
+        this.source = source;
+        this.in = in;
+        this.nodes = new ArrayList<>();
+        this.types = new ArrayList<>();
+        this.collections = new ArrayList<>();
+        this.frames = new AbstractCompositeObjectProxy[16];
+        this.remaining = new int[16];
+    }
+
+    public static Object read(final ByteBuffer buffer) {
+        final ProxyReader reader = new ProxyReader(null, buffer);
+        try {
+            return reader.readGraph();
+        } catch (final EOFException e) {
+            throw new IllegalArgumentException("Malformed proxy stream: truncated input", e);
+        } catch (final IOException e) {
+            throw new InternalError("Unexpected IOException", e);
+        }
+    }
+
+    public static Object read(final ReadableByteChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(CHANNEL_BUFFER_SIZE);
+        buffer.flip();
+        return new ProxyReader(channel, buffer).readGraph();
+    }
+
+    private Proxy readGraph() throws IOException {
+        require(5);
+        if (this.in.getInt() != WireFormat.MAGIC) {
+            throw new IllegalArgumentException("Malformed proxy stream: bad magic number");
+        }
+        final byte version = this.in.get();
+        if (version != WireFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported proxy stream version " + version);
+        }
+        final Proxy root = readNode();
+        while (this.top > 0) {
+            final int frame = this.top - 1;
+            if (this.remaining[frame] == 0) {
+                this.frames[--this.top] = null;
+                continue;
+            }
+            this.remaining[frame]--;
+            this.frames[frame].values.add(readNode());
+        }
+        for (int i = this.collections.size() - 1; i >= 0; i--) {
+            this.collections.get(i).seal();
+        }
+        return root;
+    }
+
+    private Proxy readNode() throws IOException {
+        final byte tag = readByte();
+        switch (tag) {
+            case WireFormat.NULL:
+                return Null.V;
+            case WireFormat.SKIPPED:
+                return Skipped.V;
+            case WireFormat.PRIMITIVE: {
+                final byte kind = readByte();
+                return new PrimitiveOrWrapperProxy(kind, readBits(kind));
+            }
+            case WireFormat.BACK_REFERENCE: {
+                final int id = readVarInt();
+                if (id < 0 || id >= this.nodes.size()) {
+                    throw new IllegalArgumentException("Malformed proxy stream: dangling back-reference " + id);
+                }
+                return this.nodes.get(id);
+            }
+            case WireFormat.STRING: {
+                final char[] chars = new char[readLength(1)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = (char) readVarInt();
+                }
+                return register(new StringProxy(new String(chars)));
+            }
+            case WireFormat.VALUE:
+                return register(new ValueProxy(readValue()));
+            case WireFormat.PRIMITIVE_ARRAY:
+                return register(readPrimitiveArray());
+            case WireFormat.WRAPPER_ARRAY: {
+                final byte kind = readByte();
+                final Object[] array = WireFormat.newWrapperArray(kind, readLength(1));
+                for (int i = 0; i < array.length; i++) {
+                    if (readByte() != 0) {
+                        array[i] = WireFormat.toWrapper(kind, readBits(kind));
+                    }
+                }
+                return register(new PrimitiveWrapperArrayProxy(array));
+            }
+            case WireFormat.ENUM: {
+                final int typeId = readType();
+                return register(new EnumProxy(typeId, readString()));
+            }
+            case WireFormat.OBJECT:
+            case WireFormat.OBJECT_ARRAY: {
+                final int typeId = readType();
+                final int size = readLength(1);
+                final List<Proxy> values = new ArrayList<>(size);
+                final AbstractCompositeObjectProxy composite = tag == WireFormat.OBJECT
+                        ? new ObjectProxy(typeId, values)
+                        : new ObjectArrayProxy(typeId, values);
+                register(composite);
+                push(composite, size);
+                return composite;
+            }
+            case WireFormat.HASH_COLLECTION: {
+                final int typeId = readType();
+                final int arity = readByte();
+                if (arity != 1 && arity != 2) {
+                    throw new IllegalArgumentException("Malformed proxy stream: bad collection arity " + arity);
+                }
+                final int size = readLength(1);
+                final HashCollectionProxy collection = new HashCollectionProxy(typeId, new ArrayList<>(size), arity);
+                register(collection);
+                this.collections.add(collection);
+                push(collection, size);
+                return collection;
+            }
+            default:
+                throw new IllegalArgumentException("Malformed proxy stream: unknown tag " + tag);
+        }
+    }
+
+    private Proxy register(final Proxy proxy) {
+        this.nodes.add(proxy);
+        return proxy;
+    }
+
+    private void push(final AbstractCompositeObjectProxy composite, final int size) {
+        if (this.top == this.frames.length) {
+            this.frames = Arrays.copyOf(this.frames, this.top << 1);
+            this.remaining = Arrays.copyOf(this.remaining, this.top << 1);
+        }
+        this.frames[this.top] = composite;
+        this.remaining[this.top] = size;
+        this.top++;
+    }
+
+    private int readType() throws IOException {
+        final int index = readVarInt();
+        if (index == 0) {
+            final int typeId = TypeTable.idOf(readString());
+            this.types.add(typeId);
+            return typeId;
+        }
+        if (index < 0 || index > this.types.size()) {
+            throw new IllegalArgumentException("Malformed proxy stream: unknown type index " + index);
+        }
+        return this.types.get(index - 1);
+    }
+
+    private Object readValue() throws IOException {
+        try (ObjectInputStream ois = new ValueInputStream(new ByteArrayInputStream(readBytes()))) {
+            return ois.readObject();
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalArgumentException("Malformed proxy stream: unknown value class " + e.getMessage(), e);
+        } catch (final InvalidClassException e) {
+            throw new IllegalArgumentException("Malformed proxy stream: rejected value class " + e.classname, e);
+        }
+    }
+
+    private String readString() throws IOException {
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+        final byte[] bytes = new byte[readLength(1)];
+        int offset = 0;
+        while (offset < bytes.length) {
+            require(Math.min(bytes.length - offset, this.in.capacity()));
+            final int chunk = Math.min(bytes.length - offset, this.in.remaining());
+            this.in.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+        return bytes;
+    }
+
+    private byte readByte() throws IOException {
+        require(1);
+        return this.in.get();
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed proxy stream: varint too long");
+    }
+
+    private long readBits(final byte kind) throws IOException {
+        final int width = WireFormat.widthOf(kind);
+        require(width);
+        switch (width) {
+            case 1:
+                return this.in.get();
+            case 2:
+                return kind == PrimitiveOrWrapperProxy.CHAR ? this.in.getChar() : this.in.getShort();
+            case 4:
+                return this.in.getInt();
+            default:
+                return this.in.getLong();
+        }
+    }
+
+    private PrimitiveArrayProxy readPrimitiveArray() throws IOException {
+        final byte kind = readByte();
+        if (kind < PrimitiveOrWrapperProxy.BOOLEAN || kind > PrimitiveOrWrapperProxy.DOUBLE) {
+            throw new IllegalArgumentException("Malformed proxy stream: unknown primitive kind " + kind);
+        }
+        final int length = readLength(WireFormat.widthOf(kind));
+        switch (kind) {
+            case PrimitiveOrWrapperProxy.INT: {
+                final int[] array = new int[length];
+                for (int offset = 0; offset < length; ) {
+                    final int chunk = chunk(length - offset, 4);
+                    this.in.asIntBuffer().get(array, offset, chunk);
+                    this.in.position(this.in.position() + chunk * 4);
+                    offset += chunk;
+                }
+                return new PrimitiveArrayProxy.OfInt(array);
+            }
+            case PrimitiveOrWrapperProxy.LONG: {
+                final long[] array = new long[length];
+                for (int offset = 0; offset < length; ) {
+                    final int chunk = chunk(length - offset, 8);
+                    this.in.asLongBuffer().get(array, offset, chunk);
+                    this.in.position(this.in.position() + chunk * 8);
+                    offset += chunk;
+                }
+                return new PrimitiveArrayProxy.OfLong(array);
+            }
+            case PrimitiveOrWrapperProxy.DOUBLE: {
+                final double[] array = new double[length];
+                for (int offset = 0; offset < length; ) {
+                    final int chunk = chunk(length - offset, 8);
+                    this.in.asDoubleBuffer().get(array, offset, chunk);
+                    this.in.position(this.in.position() + chunk * 8);
+                    offset += chunk;
+                }
+                return new PrimitiveArrayProxy.OfDouble(array);
+            }
+            case PrimitiveOrWrapperProxy.FLOAT: {
+                final float[] array = new float[length];
+                for (int offset = 0; offset < length; ) {
+                    final int chunk = chunk(length - offset, 4);
+                    this.in.asFloatBuffer().get(array, offset, chunk);
+                    this.in.position(this.in.position() + chunk * 4);
+                    offset += chunk;
+                }
+                return new PrimitiveArrayProxy.OfFloat(array);
+            }
+            case PrimitiveOrWrapperProxy.CHAR: {
+                final char[] array = new char[length];
+                for (int offset = 0; offset < length; ) {
+                    final int chunk = chunk(length - offset, 2);
+                    this.in.asCharBuffer().get(array, offset, chunk);
+                    this.in.position(this.in.position() + chunk * 2);
+                    offset += chunk;
+                }
+                return new PrimitiveArrayProxy.OfChar(array);
+            }
+            case PrimitiveOrWrapperProxy.SHORT: {
+                final short[] array = new short[length];
+                for (int offset = 0; offset < length; ) {
+                    final int chunk = chunk(length - offset, 2);
+                    this.in.asShortBuffer().get(array, offset, chunk);
+                    this.in.position(this.in.position() + chunk * 2);
+                    offset += chunk;
+                }
+                return new PrimitiveArrayProxy.OfShort(array);
+            }
+            case PrimitiveOrWrapperProxy.BYTE: {
+                final byte[] array = new byte[length];
+                for (int offset = 0; offset < length; ) {
+                    final int chunk = chunk(length - offset, 1);
+                    this.in.get(array, offset, chunk);
+                    offset += chunk;
+                }
+                return new PrimitiveArrayProxy.OfByte(array);
+            }
+            case PrimitiveOrWrapperProxy.BOOLEAN: {
+                final boolean[] array = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = readByte() != 0;
+                }
+                return new PrimitiveArrayProxy.OfBoolean(array);
+            }
+            default:
+                throw new IllegalArgumentException("Malformed proxy stream: unknown primitive kind " + kind);
+        }
+    }
+
+    private int readLength(final int elementWidth) throws IOException {
+        final int length = readVarInt();
+        if (length < 0) {
+            throw new IllegalArgumentException("Malformed proxy stream: negative length " + length);
+        }
+        if (this.source == null && (long) length * elementWidth > this.in.remaining()) {
+            throw new EOFException("Truncated proxy stream");
+        }
+        return length;
+    }
+
+    private int chunk(final int remaining, final int width) throws IOException {
+        require((int) Math.min((long) remaining * width, this.in.capacity() / width * width));
+        return Math.min(remaining, this.in.remaining() / width);
+    }
+
+    private void require(final int bytes) throws IOException {
+        if (this.in.remaining() >= bytes) {
+            return;
+        }
+        if (this.source == null) {
+            throw new EOFException("Truncated proxy stream");
+        }
+        this.in.compact();
+        this.in.limit(bytes);
+        while (this.in.hasRemaining()) {
+            if (this.source.read(this.in) < 0) {
+                throw new EOFException("Truncated proxy stream");
+            }
+        }
+        this.in.flip();
+    }
+}
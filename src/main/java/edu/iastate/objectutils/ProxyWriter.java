@@ -0,0 +1,370 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ProxyWriter {
+    private static final int INITIAL_BUFFER_SIZE = 1 << 12;
+
+    private static final int CHANNEL_BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel sink;
+
+    private final Map<Proxy, Integer> ids;
+
+    private int[] types;
+
+    private int typeCount;
+
+    private ByteBuffer out;
+
+    private AbstractCompositeObjectProxy[] frames;
+
+    private int[] cursors;
+
+    private int top;
+
+    private ProxyWriter(final WritableByteChannel sink, final ByteBuffer out) {
+        this.sink = sink;
+        this.out = out;
+        this.ids = new IdentityHashMap<>();
+        this.types = new int[64];
+        this.frames = new AbstractCompositeObjectProxy[16];
+        this.cursors = new int[16];
+    }
+
+    public static ByteBuffer write(final Object snapshot) {
+        final ProxyWriter writer = new ProxyWriter(null, ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+        try {
+            writer.writeGraph(toProxy(snapshot));
+        } catch (final IOException e) {
+            throw new InternalError("Unexpected IOException", e);
+        }
+        writer.out.flip();
+        return writer.out;
+    }
+
+    public static void write(final Object snapshot, final WritableByteChannel channel) throws IOException {
+        final ProxyWriter writer = new ProxyWriter(channel, ByteBuffer.allocate(CHANNEL_BUFFER_SIZE));
+        writer.writeGraph(toProxy(snapshot));
+        writer.flush();
+    }
+
+    private static Proxy toProxy(final Object snapshot) {
+        if (!(snapshot instanceof Proxy)) {
+            throw new IllegalArgumentException("Not a snapshot produced by ObjectUtils.makeSerializable");
+        }
+        return (Proxy) snapshot;
+    }
+
+    private void writeGraph(final Proxy root) throws IOException {
+        ensure(5);
+        this.out.putInt(WireFormat.MAGIC);
+        this.out.put(WireFormat.VERSION);
+        writeNode(root);
+        while (this.top > 0) {
+            final int frame = this.top - 1;
+            final AbstractCompositeObjectProxy composite = this.frames[frame];
+            final int index = this.cursors[frame];
+            if (index == composite.values.size()) {
+                this.frames[--this.top] = null;
+                continue;
+            }
+            this.cursors[frame] = index + 1;
+            final List<Proxy> values = composite.values;
+            if (values instanceof Slots && ((Slots) values).isPrimitive(index)) {
+                final byte kind = ((Slots) values).layout.kinds[index];
+                writeTag(WireFormat.PRIMITIVE);
+                writeTag(kind);
+                writeBits(kind, ((Slots) values).bitsAt(index));
+            } else {
+                writeNode(values.get(index));
+            }
+        }
+    }
+
+    private void writeNode(final Proxy proxy) throws IOException {
+        if (proxy == Null.V) {
+            writeTag(WireFormat.NULL);
+            return;
+        }
+        if (proxy == Skipped.V) {
+            writeTag(WireFormat.SKIPPED);
+            return;
+        }
+        if (proxy instanceof PrimitiveOrWrapperProxy) {
+            final PrimitiveOrWrapperProxy primitive = (PrimitiveOrWrapperProxy) proxy;
+            writeTag(WireFormat.PRIMITIVE);
+            writeTag(primitive.kind);
+            writeBits(primitive.kind, primitive.bits);
+            return;
+        }
+        final Integer id = this.ids.get(proxy);
+        if (id != null) {
+            writeTag(WireFormat.BACK_REFERENCE);
+            writeVarInt(id);
+            return;
+        }
+        this.ids.put(proxy, this.ids.size());
+        if (proxy instanceof StringProxy) {
+            final String value = ((StringProxy) proxy).value;
+            final int length = value.length();
+            writeTag(WireFormat.STRING);
+            writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                writeVarInt(value.charAt(i));
+            }
+        } else if (proxy instanceof ValueProxy) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(((ValueProxy) proxy).value);
+            }
+            writeTag(WireFormat.VALUE);
+            writeBytes(bytes.toByteArray());
+        } else if (proxy instanceof PrimitiveArrayProxy) {
+            writeTag(WireFormat.PRIMITIVE_ARRAY);
+            writePrimitiveArray((PrimitiveArrayProxy) proxy);
+        } else if (proxy instanceof PrimitiveWrapperArrayProxy) {
+            final Object[] array = ((PrimitiveWrapperArrayProxy) proxy).array;
+            final byte kind = WireFormat.wrapperKindOf(array.getClass());
+            writeTag(WireFormat.WRAPPER_ARRAY);
+            writeTag(kind);
+            writeVarInt(array.length);
+            for (final Object element : array) {
+                if (element == null) {
+                    writeTag((byte) 0);
+                } else {
+                    final PrimitiveOrWrapperProxy primitive = PrimitiveOrWrapperProxy.of(element);
+                    writeTag((byte) 1);
+                    writeBits(kind, primitive.bits);
+                }
+            }
+        } else if (proxy instanceof EnumProxy) {
+            final EnumProxy enumProxy = (EnumProxy) proxy;
+            writeTag(WireFormat.ENUM);
+            writeType(enumProxy.typeId);
+            writeString(enumProxy.constName);
+        } else if (proxy instanceof HashCollectionProxy) {
+            final HashCollectionProxy collection = (HashCollectionProxy) proxy;
+            collection.ensureSealed();
+            writeTag(WireFormat.HASH_COLLECTION);
+            writeType(collection.typeId);
+            writeTag((byte) collection.arity);
+            writeVarInt(collection.values.size());
+            push(collection);
+        } else if (proxy instanceof AbstractCompositeObjectProxy) {
+            final AbstractCompositeObjectProxy composite = (AbstractCompositeObjectProxy) proxy;
+            writeTag(composite instanceof ObjectArrayProxy ? WireFormat.OBJECT_ARRAY : WireFormat.OBJECT);
+            writeType(composite.typeId);
+            writeVarInt(composite.values.size());
+            push(composite);
+        } else {
+            throw new IllegalArgumentException("Unsupported proxy type " + proxy.getClass().getName());
+        }
+    }
+
+    private void push(final AbstractCompositeObjectProxy composite) {
+        if (this.top == this.frames.length) {
+            this.frames = Arrays.copyOf(this.frames, this.top << 1);
+            this.cursors = Arrays.copyOf(this.cursors, this.top << 1);
+        }
+        this.frames[this.top] = composite;
+        this.cursors[this.top] = 0;
+        this.top++;
+    }
+
+    private void writeType(final int typeId) throws IOException {
+        if (typeId >= this.types.length) {
+            this.types = Arrays.copyOf(this.types, Math.max(typeId + 1, this.types.length << 1));
+        }
+        final int index = this.types[typeId];
+        if (index != 0) {
+            writeVarInt(index);
+            return;
+        }
+        this.types[typeId] = ++this.typeCount;
+        writeVarInt(0);
+        writeString(TypeTable.nameOf(typeId));
+    }
+
+    private void writeString(final String string) throws IOException {
+        writeBytes(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(final byte[] bytes) throws IOException {
+        writeVarInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensure(1);
+            final int chunk = Math.min(bytes.length - offset, this.out.remaining());
+            this.out.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private void writeTag(final byte tag) throws IOException {
+        ensure(1);
+        this.out.put(tag);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            this.out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.out.put((byte) value);
+    }
+
+    private void writeBits(final byte kind, final long bits) throws IOException {
+        ensure(8);
+        switch (WireFormat.widthOf(kind)) {
+            case 1:
+                this.out.put((byte) bits);
+                break;
+            case 2:
+                this.out.putShort((short) bits);
+                break;
+            case 4:
+                this.out.putInt((int) bits);
+                break;
+            default:
+                this.out.putLong(bits);
+        }
+    }
+
+    private void writePrimitiveArray(final PrimitiveArrayProxy proxy) throws IOException {
+        final int length = proxy.length();
+        if (proxy instanceof PrimitiveArrayProxy.OfInt) {
+            final int[] array = ((PrimitiveArrayProxy.OfInt) proxy).array;
+            writeArrayHeader(PrimitiveOrWrapperProxy.INT, length);
+            for (int offset = 0; offset < length; ) {
+                final int chunk = chunk(length - offset, 4);
+                this.out.asIntBuffer().put(array, offset, chunk);
+                this.out.position(this.out.position() + chunk * 4);
+                offset += chunk;
+            }
+        } else if (proxy instanceof PrimitiveArrayProxy.OfLong) {
+            final long[] array = ((PrimitiveArrayProxy.OfLong) proxy).array;
+            writeArrayHeader(PrimitiveOrWrapperProxy.LONG, length);
+            for (int offset = 0; offset < length; ) {
+                final int chunk = chunk(length - offset, 8);
+                this.out.asLongBuffer().put(array, offset, chunk);
+                this.out.position(this.out.position() + chunk * 8);
+                offset += chunk;
+            }
+        } else if (proxy instanceof PrimitiveArrayProxy.OfDouble) {
+            final double[] array = ((PrimitiveArrayProxy.OfDouble) proxy).array;
+            writeArrayHeader(PrimitiveOrWrapperProxy.DOUBLE, length);
+            for (int offset = 0; offset < length; ) {
+                final int chunk = chunk(length - offset, 8);
+                this.out.asDoubleBuffer().put(array, offset, chunk);
+                this.out.position(this.out.position() + chunk * 8);
+                offset += chunk;
+            }
+        } else if (proxy instanceof PrimitiveArrayProxy.OfFloat) {
+            final float[] array = ((PrimitiveArrayProxy.OfFloat) proxy).array;
+            writeArrayHeader(PrimitiveOrWrapperProxy.FLOAT, length);
+            for (int offset = 0; offset < length; ) {
+                final int chunk = chunk(length - offset, 4);
+                this.out.asFloatBuffer().put(array, offset, chunk);
+                this.out.position(this.out.position() + chunk * 4);
+                offset += chunk;
+            }
+        } else if (proxy instanceof PrimitiveArrayProxy.OfChar) {
+            final char[] array = ((PrimitiveArrayProxy.OfChar) proxy).array;
+            writeArrayHeader(PrimitiveOrWrapperProxy.CHAR, length);
+            for (int offset = 0; offset < length; ) {
+                final int chunk = chunk(length - offset, 2);
+                this.out.asCharBuffer().put(array, offset, chunk);
+                this.out.position(this.out.position() + chunk * 2);
+                offset += chunk;
+            }
+        } else if (proxy instanceof PrimitiveArrayProxy.OfShort) {
+            final short[] array = ((PrimitiveArrayProxy.OfShort) proxy).array;
+            writeArrayHeader(PrimitiveOrWrapperProxy.SHORT, length);
+            for (int offset = 0; offset < length; ) {
+                final int chunk = chunk(length - offset, 2);
+                this.out.asShortBuffer().put(array, offset, chunk);
+                this.out.position(this.out.position() + chunk * 2);
+                offset += chunk;
+            }
+        } else if (proxy instanceof PrimitiveArrayProxy.OfByte) {
+            final byte[] array = ((PrimitiveArrayProxy.OfByte) proxy).array;
+            writeArrayHeader(PrimitiveOrWrapperProxy.BYTE, length);
+            for (int offset = 0; offset < length; ) {
+                final int chunk = chunk(length - offset, 1);
+                this.out.put(array, offset, chunk);
+                offset += chunk;
+            }
+        } else {
+            final boolean[] array = ((PrimitiveArrayProxy.OfBoolean) proxy).array;
+            writeArrayHeader(PrimitiveOrWrapperProxy.BOOLEAN, length);
+            for (final boolean element : array) {
+                ensure(1);
+                this.out.put(element ? (byte) 1 : (byte) 0);
+            }
+        }
+    }
+
+    private void writeArrayHeader(final byte kind, final int length) throws IOException {
+        writeTag(kind);
+        writeVarInt(length);
+    }
+
+    private int chunk(final int remaining, final int width) throws IOException {
+        ensure(width);
+        return Math.min(remaining, this.out.remaining() / width);
+    }
+
+    private void ensure(final int bytes) throws IOException {
+        if (this.out.remaining() >= bytes) {
+            return;
+        }
+        if (this.sink != null) {
+            flush();
+            return;
+        }
+        final int capacity = Math.max(this.out.capacity() << 1, this.out.position() + bytes);
+        final ByteBuffer grown = ByteBuffer.allocate(capacity);
+        this.out.flip();
+        grown.put(this.out);
+        this.out = grown;
+    }
+
+    private void flush() throws IOException {
+        this.out.flip();
+        while (this.out.hasRemaining()) {
+            this.sink.write(this.out);
+        }
+        this.out.clear();
+    }
+}
@@ -0,0 +1,99 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+final class Slots extends AbstractList<Proxy> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final long[] NO_BITS = new long[0];
+
+    private static final Proxy[] NO_REFERENCES = new Proxy[0];
+
+    final transient FieldLayout layout;
+
+    final transient long[] bits;
+
+    final transient Proxy[] references;
+
+    Slots(final FieldLayout layout) {
+        this.layout = layout;
+        this.bits = layout.primitiveCount == 0 ? NO_BITS : new long[layout.primitiveCount];
+        final int referenceCount = layout.kinds.length - layout.primitiveCount;
+        this.references = referenceCount == 0 ? NO_REFERENCES : new Proxy[referenceCount];
+    }
+
+    static List<Proxy> forLayout(final FieldLayout layout) {
+        if (layout.primitiveCount < 2) {
+            return Arrays.asList(new Proxy[layout.kinds.length]);
+        }
+        return new Slots(layout);
+    }
+
+    static boolean isPacked(final List<Proxy> lhs, final List<Proxy> rhs) {
+        return lhs instanceof Slots && rhs instanceof Slots && ((Slots) lhs).layout == ((Slots) rhs).layout;
+    }
+
+    boolean isPrimitive(final int index) {
+        return this.layout.kinds[index] != FieldLayout.REFERENCE;
+    }
+
+    long bitsAt(final int index) {
+        return this.bits[this.layout.positions[index]];
+    }
+
+    int hashCodeAt(final int index) {
+        return PrimitiveOrWrapperProxy.hashCodeOf(this.layout.kinds[index], bitsAt(index));
+    }
+
+    void setBits(final int index, final long bits) {
+        this.bits[this.layout.positions[index]] = bits;
+    }
+
+    void setReference(final int index, final Proxy proxy) {
+        this.references[this.layout.positions[index]] = proxy;
+    }
+
+    @Override
+    public Proxy get(final int index) {
+        final byte kind = this.layout.kinds[index];
+        if (kind == FieldLayout.REFERENCE) {
+            return this.references[this.layout.positions[index]];
+        }
+        return new PrimitiveOrWrapperProxy(kind, this.bits[this.layout.positions[index]]);
+    }
+
+    @Override
+    public int size() {
+        return this.layout.kinds.length;
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return new ArrayList<>(this);
+    }
+}
@@ -0,0 +1,541 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+public final class SnapshotArena {
+    static final int SLOT_SIZE = 9;
+
+    static final byte SLOT_REFERENCE = -1;
+
+    static final byte SLOT_NULL = -2;
+
+    static final byte SLOT_SKIPPED = -3;
+
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 24;
+
+    private final int segmentSize;
+
+    private volatile ByteBuffer[] segments;
+
+    private int segmentCount;
+
+    private int snapshotCount;
+
+    private long usedBytes;
+
+    public SnapshotArena() {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SnapshotArena(final int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        this.segments = new ByteBuffer[4];
+    }
+
+    public long add(final Object snapshot) {
+        if (!(snapshot instanceof Proxy)) {
+            throw new IllegalArgumentException("Not a snapshot produced by ObjectUtils.makeSerializable");
+        }
+        final ByteBuffer encoded = encode((Proxy) snapshot, IntUnaryOperator.identity());
+        final int length = encoded.remaining();
+        synchronized (this) {
+            ByteBuffer segment = this.segmentCount == 0 ? null : this.segments[this.segmentCount - 1];
+            if (segment == null || segment.remaining() < length) {
+                segment = ByteBuffer.allocateDirect(Math.max(this.segmentSize, length));
+                final ByteBuffer[] segments = this.segmentCount == this.segments.length
+                        ? Arrays.copyOf(this.segments, this.segmentCount << 1)
+                        : this.segments;
+                segments[this.segmentCount++] = segment;
+                this.segments = segments;
+            }
+            final int base = segment.position();
+            segment.put(encoded);
+            this.snapshotCount++;
+            this.usedBytes += length;
+            return ((long) (this.segmentCount - 1) << 32) | base;
+        }
+    }
+
+    public Object get(final long handle) {
+        return decode(segmentOf(handle), baseOf(handle), IntUnaryOperator.identity());
+    }
+
+    public boolean deepEquals(final long lhs, final long rhs) {
+        return walker(lhs, rhs).deepEquals();
+    }
+
+    public double extendedHammingDistance(final long lhs, final long rhs) {
+        return walker(lhs, rhs).distance();
+    }
+
+    private ArenaWalker walker(final long lhs, final long rhs) {
+        return new ArenaWalker(segmentOf(lhs), baseOf(lhs), IntUnaryOperator.identity(),
+                segmentOf(rhs), baseOf(rhs), IntUnaryOperator.identity());
+    }
+
+    public synchronized int size() {
+        return this.snapshotCount;
+    }
+
+    public synchronized long usedBytes() {
+        return this.usedBytes;
+    }
+
+    public synchronized long allocatedBytes() {
+        long allocated = 0L;
+        for (int i = 0; i < this.segmentCount; i++) {
+            allocated += this.segments[i].capacity();
+        }
+        return allocated;
+    }
+
+    private ByteBuffer segmentOf(final long handle) {
+        final ByteBuffer[] segments = this.segments;
+        final int index = (int) (handle >>> 32);
+        final ByteBuffer segment = index < segments.length ? segments[index] : null;
+        if (segment == null || baseOf(handle) < 0 || baseOf(handle) + SLOT_SIZE > segment.capacity()) {
+            throw new IllegalArgumentException("Not a handle issued by this arena: " + handle);
+        }
+        return segment;
+    }
+
+    private static int baseOf(final long handle) {
+        return (int) handle;
+    }
+
+    static ByteBuffer encode(final Proxy snapshot, final IntUnaryOperator types) {
+        return new Encoder(types).encode(snapshot);
+    }
+
+    static Proxy decode(final ByteBuffer segment, final int base, final IntUnaryOperator types) {
+        return new Decoder(segment, base, types).decode();
+    }
+
+    static int slotsOf(final ByteBuffer segment, final int record) {
+        final byte tag = segment.get(record);
+        if (tag == WireFormat.HASH_COLLECTION) {
+            final int size = segment.getInt(record + 6);
+            return record + 10 + (size / segment.get(record + 5)) * 4;
+        }
+        return record + 9;
+    }
+
+    private static final class Encoder {
+        private final Map<Proxy, Integer> records = new IdentityHashMap<>();
+
+        private final Deque<AbstractCompositeObjectProxy> pending = new ArrayDeque<>();
+
+        private final IntUnaryOperator types;
+
+        private ByteBuffer out = ByteBuffer.allocate(256);
+
+        Encoder(final IntUnaryOperator types) {
+            this.types = types;
+        }
+
+        ByteBuffer encode(final Proxy root) {
+            this.out.position(SLOT_SIZE);
+            writeSlot(0, root);
+            while (!this.pending.isEmpty()) {
+                final AbstractCompositeObjectProxy composite = this.pending.pop();
+                final int slots = slotsOf(this.out, this.records.get(composite));
+                final List<Proxy> values = composite.values;
+                final int size = values.size();
+                for (int i = 0; i < size; i++) {
+                    final int slot = slots + i * SLOT_SIZE;
+                    if (values instanceof Slots && ((Slots) values).isPrimitive(i)) {
+                        this.out.put(slot, ((Slots) values).layout.kinds[i]);
+                        this.out.putLong(slot + 1, ((Slots) values).bitsAt(i));
+                    } else {
+                        writeSlot(slot, values.get(i));
+                    }
+                }
+            }
+            this.out.flip();
+            return this.out;
+        }
+
+        private void writeSlot(final int slot, final Proxy proxy) {
+            if (proxy == Null.V) {
+                this.out.put(slot, SLOT_NULL);
+            } else if (proxy == Skipped.V) {
+                this.out.put(slot, SLOT_SKIPPED);
+            } else if (proxy instanceof PrimitiveOrWrapperProxy) {
+                this.out.put(slot, ((PrimitiveOrWrapperProxy) proxy).kind);
+                this.out.putLong(slot + 1, ((PrimitiveOrWrapperProxy) proxy).bits);
+            } else {
+                final int record = recordOf(proxy);
+                this.out.put(slot, SLOT_REFERENCE);
+                this.out.putLong(slot + 1, record);
+            }
+        }
+
+        private int recordOf(final Proxy proxy) {
+            final Integer existing = this.records.get(proxy);
+            if (existing != null) {
+                return existing;
+            }
+            final int record = this.out.position();
+            this.records.put(proxy, record);
+            if (proxy instanceof StringProxy) {
+                final String value = ((StringProxy) proxy).value;
+                ensure(5L + value.length() * 2L);
+                this.out.put(WireFormat.STRING).putInt(value.length());
+                for (int i = 0; i < value.length(); i++) {
+                    this.out.putChar(value.charAt(i));
+                }
+            } else if (proxy instanceof ValueProxy) {
+                final byte[] bytes = serialize(((ValueProxy) proxy).value);
+                ensure(5 + bytes.length);
+                this.out.put(WireFormat.VALUE).putInt(bytes.length).put(bytes);
+            } else if (proxy instanceof PrimitiveArrayProxy) {
+                writePrimitiveArray((PrimitiveArrayProxy) proxy);
+            } else if (proxy instanceof PrimitiveWrapperArrayProxy) {
+                final Object[] array = ((PrimitiveWrapperArrayProxy) proxy).array;
+                final byte kind = WireFormat.wrapperKindOf(array.getClass());
+                ensure(6L + (long) array.length * SLOT_SIZE);
+                this.out.put(WireFormat.WRAPPER_ARRAY).put(kind).putInt(array.length);
+                for (final Object element : array) {
+                    if (element == null) {
+                        this.out.put((byte) 0).putLong(0L);
+                    } else {
+                        this.out.put((byte) 1).putLong(PrimitiveOrWrapperProxy.of(element).bits);
+                    }
+                }
+            } else if (proxy instanceof EnumProxy) {
+                final String name = ((EnumProxy) proxy).constName;
+                ensure(9L + name.length() * 2L);
+                this.out.put(WireFormat.ENUM).putInt(this.types.applyAsInt(((EnumProxy) proxy).typeId))
+                        .putInt(name.length());
+                for (int i = 0; i < name.length(); i++) {
+                    this.out.putChar(name.charAt(i));
+                }
+            } else if (proxy instanceof HashCollectionProxy) {
+                final HashCollectionProxy collection = (HashCollectionProxy) proxy;
+                collection.ensureSealed();
+                final int size = collection.values.size();
+                ensure(10L + collection.entryHashes.length * 4L + (long) size * SLOT_SIZE);
+                this.out.put(WireFormat.HASH_COLLECTION).putInt(this.types.applyAsInt(collection.typeId))
+                        .put((byte) collection.arity).putInt(size);
+                for (final int hash : collection.entryHashes) {
+                    this.out.putInt(hash);
+                }
+                this.out.position(this.out.position() + size * SLOT_SIZE);
+                this.pending.push(collection);
+            } else if (proxy instanceof AbstractCompositeObjectProxy) {
+                final AbstractCompositeObjectProxy composite = (AbstractCompositeObjectProxy) proxy;
+                final int size = composite.values.size();
+                ensure(9L + (long) size * SLOT_SIZE);
+                this.out.put(composite instanceof ObjectArrayProxy ? WireFormat.OBJECT_ARRAY : WireFormat.OBJECT)
+                        .putInt(this.types.applyAsInt(composite.typeId)).putInt(size);
+                this.out.position(this.out.position() + size * SLOT_SIZE);
+                this.pending.push(composite);
+            } else {
+                throw new IllegalArgumentException("Unsupported proxy type " + proxy.getClass().getName());
+            }
+            return record;
+        }
+
+        private void writePrimitiveArray(final PrimitiveArrayProxy proxy) {
+            final int length = proxy.length();
+            final byte kind = proxy.kind();
+            ensure(6L + (long) length * WireFormat.widthOf(kind));
+            this.out.put(WireFormat.PRIMITIVE_ARRAY).put(kind).putInt(length);
+            if (proxy instanceof PrimitiveArrayProxy.OfInt) {
+                for (final int element : ((PrimitiveArrayProxy.OfInt) proxy).array) {
+                    this.out.putInt(element);
+                }
+            } else if (proxy instanceof PrimitiveArrayProxy.OfLong) {
+                for (final long element : ((PrimitiveArrayProxy.OfLong) proxy).array) {
+                    this.out.putLong(element);
+                }
+            } else if (proxy instanceof PrimitiveArrayProxy.OfDouble) {
+                for (final double element : ((PrimitiveArrayProxy.OfDouble) proxy).array) {
+                    this.out.putLong(Double.doubleToLongBits(element));
+                }
+            } else if (proxy instanceof PrimitiveArrayProxy.OfFloat) {
+                for (final float element : ((PrimitiveArrayProxy.OfFloat) proxy).array) {
+                    this.out.putInt(Float.floatToIntBits(element));
+                }
+            } else if (proxy instanceof PrimitiveArrayProxy.OfChar) {
+                for (final char element : ((PrimitiveArrayProxy.OfChar) proxy).array) {
+                    this.out.putChar(element);
+                }
+            } else if (proxy instanceof PrimitiveArrayProxy.OfShort) {
+                for (final short element : ((PrimitiveArrayProxy.OfShort) proxy).array) {
+                    this.out.putShort(element);
+                }
+            } else if (proxy instanceof PrimitiveArrayProxy.OfByte) {
+                this.out.put(((PrimitiveArrayProxy.OfByte) proxy).array);
+            } else {
+                for (final boolean element : ((PrimitiveArrayProxy.OfBoolean) proxy).array) {
+                    this.out.put(element ? (byte) 1 : (byte) 0);
+                }
+            }
+        }
+
+        private void ensure(final long bytes) {
+            final long required = this.out.position() + bytes;
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Snapshot too large for an arena segment");
+            }
+            if (required > this.out.capacity()) {
+                final int capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(required, (long) this.out.capacity() << 1));
+                final ByteBuffer grown = ByteBuffer.allocate(capacity);
+                final int position = this.out.position();
+                this.out.flip();
+                grown.put(this.out);
+                grown.position(position);
+                this.out = grown;
+            }
+        }
+    }
+
+    private static final class Decoder {
+        private final ByteBuffer segment;
+
+        private final int base;
+
+        private final IntUnaryOperator types;
+
+        private final Map<Integer, Proxy> proxies = new HashMap<>();
+
+        private final Deque<AbstractCompositeObjectProxy> pending = new ArrayDeque<>();
+
+        private final Deque<Integer> pendingRecords = new ArrayDeque<>();
+
+        private final List<HashCollectionProxy> collections = new ArrayList<>();
+
+        Decoder(final ByteBuffer segment, final int base, final IntUnaryOperator types) {
+            this.segment = segment;
+            this.base = base;
+            this.types = types;
+        }
+
+        Proxy decode() {
+            final Proxy root = readSlot(this.base);
+            while (!this.pending.isEmpty()) {
+                final AbstractCompositeObjectProxy composite = this.pending.pop();
+                final int slots = slotsOf(this.segment, this.pendingRecords.pop());
+                final List<Proxy> values = composite.values;
+                for (int i = 0; i < values.size(); i++) {
+                    values.set(i, readSlot(slots + i * SLOT_SIZE));
+                }
+            }
+            for (int i = this.collections.size() - 1; i >= 0; i--) {
+                this.collections.get(i).seal();
+            }
+            return root;
+        }
+
+        private Proxy readSlot(final int slot) {
+            final byte kind = this.segment.get(slot);
+            switch (kind) {
+                case SLOT_NULL:
+                    return Null.V;
+                case SLOT_SKIPPED:
+                    return Skipped.V;
+                case SLOT_REFERENCE:
+                    return readRecord(this.base + (int) this.segment.getLong(slot + 1));
+                default:
+                    return new PrimitiveOrWrapperProxy(kind, this.segment.getLong(slot + 1));
+            }
+        }
+
+        private Proxy readRecord(final int record) {
+            final Proxy existing = this.proxies.get(record);
+            if (existing != null) {
+                return existing;
+            }
+            final ByteBuffer in = this.segment;
+            final Proxy proxy;
+            switch (in.get(record)) {
+                case WireFormat.STRING:
+                    proxy = new StringProxy(readChars(record + 5, in.getInt(record + 1)));
+                    break;
+                case WireFormat.VALUE: {
+                    final byte[] bytes = new byte[in.getInt(record + 1)];
+                    for (int i = 0; i < bytes.length; i++) {
+                        bytes[i] = in.get(record + 5 + i);
+                    }
+                    proxy = new ValueProxy(deserialize(bytes));
+                    break;
+                }
+                case WireFormat.PRIMITIVE_ARRAY:
+                    proxy = readPrimitiveArray(record);
+                    break;
+                case WireFormat.WRAPPER_ARRAY: {
+                    final byte kind = in.get(record + 1);
+                    final Object[] array = WireFormat.newWrapperArray(kind, in.getInt(record + 2));
+                    for (int i = 0; i < array.length; i++) {
+                        final int element = record + 6 + i * SLOT_SIZE;
+                        if (in.get(element) != 0) {
+                            array[i] = WireFormat.toWrapper(kind, in.getLong(element + 1));
+                        }
+                    }
+                    proxy = new PrimitiveWrapperArrayProxy(array);
+                    break;
+                }
+                case WireFormat.ENUM:
+                    proxy = new EnumProxy(this.types.applyAsInt(in.getInt(record + 1)),
+                            readChars(record + 9, in.getInt(record + 5)));
+                    break;
+                case WireFormat.HASH_COLLECTION: {
+                    final HashCollectionProxy collection = new HashCollectionProxy(
+                            this.types.applyAsInt(in.getInt(record + 1)),
+                            Arrays.asList(new Proxy[in.getInt(record + 6)]), in.get(record + 5));
+                    this.collections.add(collection);
+                    proxy = pend(collection, record);
+                    break;
+                }
+                case WireFormat.OBJECT:
+                    proxy = pend(new ObjectProxy(this.types.applyAsInt(in.getInt(record + 1)),
+                            Arrays.asList(new Proxy[in.getInt(record + 5)])), record);
+                    break;
+                case WireFormat.OBJECT_ARRAY:
+                    proxy = pend(new ObjectArrayProxy(this.types.applyAsInt(in.getInt(record + 1)),
+                            Arrays.asList(new Proxy[in.getInt(record + 5)])), record);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Corrupt arena record at " + record);
+            }
+            this.proxies.put(record, proxy);
+            return proxy;
+        }
+
+        private Proxy pend(final AbstractCompositeObjectProxy composite, final int record) {
+            this.pending.push(composite);
+            this.pendingRecords.push(record);
+            return composite;
+        }
+
+        private String readChars(final int offset, final int length) {
+            final char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = this.segment.getChar(offset + i * 2);
+            }
+            return new String(chars);
+        }
+
+        private PrimitiveArrayProxy readPrimitiveArray(final int record) {
+            final ByteBuffer in = this.segment;
+            final byte kind = in.get(record + 1);
+            final int length = in.getInt(record + 2);
+            final int data = record + 6;
+            switch (kind) {
+                case PrimitiveOrWrapperProxy.INT: {
+                    final int[] array = new int[length];
+                    for (int i = 0; i < length; i++) {
+                        array[i] = in.getInt(data + i * 4);
+                    }
+                    return new PrimitiveArrayProxy.OfInt(array);
+                }
+                case PrimitiveOrWrapperProxy.LONG: {
+                    final long[] array = new long[length];
+                    for (int i = 0; i < length; i++) {
+                        array[i] = in.getLong(data + i * 8);
+                    }
+                    return new PrimitiveArrayProxy.OfLong(array);
+                }
+                case PrimitiveOrWrapperProxy.DOUBLE: {
+                    final double[] array = new double[length];
+                    for (int i = 0; i < length; i++) {
+                        array[i] = Double.longBitsToDouble(in.getLong(data + i * 8));
+                    }
+                    return new PrimitiveArrayProxy.OfDouble(array);
+                }
+                case PrimitiveOrWrapperProxy.FLOAT: {
+                    final float[] array = new float[length];
+                    for (int i = 0; i < length; i++) {
+                        array[i] = Float.intBitsToFloat(in.getInt(data + i * 4));
+                    }
+                    return new PrimitiveArrayProxy.OfFloat(array);
+                }
+                case PrimitiveOrWrapperProxy.CHAR: {
+                    final char[] array = new char[length];
+                    for (int i = 0; i < length; i++) {
+                        array[i] = in.getChar(data + i * 2);
+                    }
+                    return new PrimitiveArrayProxy.OfChar(array);
+                }
+                case PrimitiveOrWrapperProxy.SHORT: {
+                    final short[] array = new short[length];
+                    for (int i = 0; i < length; i++) {
+                        array[i] = in.getShort(data + i * 2);
+                    }
+                    return new PrimitiveArrayProxy.OfShort(array);
+                }
+                case PrimitiveOrWrapperProxy.BYTE: {
+                    final byte[] array = new byte[length];
+                    for (int i = 0; i < length; i++) {
+                        array[i] = in.get(data + i);
+                    }
+                    return new PrimitiveArrayProxy.OfByte(array);
+                }
+                default: {
+                    final boolean[] array = new boolean[length];
+                    for (int i = 0; i < length; i++) {
+                        array[i] = in.get(data + i) != 0;
+                    }
+                    return new PrimitiveArrayProxy.OfBoolean(array);
+                }
+            }
+        }
+    }
+
+    static byte[] serialize(final Object value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Value is not serializable: " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(final byte[] bytes) {
+        try (ObjectInputStream ois = new ValueInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Corrupt arena value record", e);
+        }
+    }
+}
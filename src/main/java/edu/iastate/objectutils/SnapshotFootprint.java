@@ -0,0 +1,52 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+public final class SnapshotFootprint {
+    private final long proxyCount;
+
+    private final long objectCount;
+
+    private final long bytes;
+
+    SnapshotFootprint(final long proxyCount, final long objectCount, final long bytes) {
+        this.proxyCount = proxyCount;
+        this.objectCount = objectCount;
+        this.bytes = bytes;
+    }
+
+    public long getProxyCount() {
+        return this.proxyCount;
+    }
+
+    public long getObjectCount() {
+        return this.objectCount;
+    }
+
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    @Override
+    public String toString() {
+        return this.proxyCount + " proxies, " + this.objectCount + " objects, " + this.bytes + " bytes";
+    }
+}
@@ -0,0 +1,330 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class SnapshotSession {
+    private final ObjectUtils config;
+
+    private final Map<Object, Node> nodes;
+
+    private final List<Node> order;
+
+    private final List<Node> stack;
+
+    private int epoch;
+
+    SnapshotSession(final ObjectUtils config) {
+        this.config = config;
+        this.nodes = new IdentityHashMap<>();
+        this.order = new ArrayList<>();
+        this.stack = new ArrayList<>();
+    }
+
+    public Object snapshot(final Object root) {
+        if (!this.config.isDepthUnbounded()) {
+            return this.config.makeSerializable(root);
+        }
+        try {
+            final Node rootNode = nodeFor(root);
+            if (rootNode == null) {
+                return Null.V;
+            }
+            this.epoch++;
+            scan(rootNode);
+            this.nodes.values().removeIf(node -> node.epoch != this.epoch);
+            propagate();
+            rebuild();
+            return rootNode.proxy;
+        } finally {
+            this.order.clear();
+            this.stack.clear();
+        }
+    }
+
+    private Node nodeFor(final Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        Node node = this.nodes.get(obj);
+        if (node == null) {
+            node = new Node(obj, this.config.terminalProxyFor(obj, obj.getClass()));
+            this.nodes.put(obj, node);
+        }
+        return node;
+    }
+
+    private void scan(final Node root) {
+        root.epoch = this.epoch;
+        this.stack.add(root);
+        while (!this.stack.isEmpty()) {
+            final Node node = this.stack.remove(this.stack.size() - 1);
+            this.order.add(node);
+            node.changed = node.composite ? scanComposite(node) : scanTerminal(node);
+            if (node.children == null) {
+                continue;
+            }
+            for (int i = node.children.length - 1; i >= 0; i--) {
+                final Node child = node.children[i];
+                if (child != null && child.epoch != this.epoch) {
+                    child.epoch = this.epoch;
+                    this.stack.add(child);
+                }
+            }
+        }
+    }
+
+    private boolean scanTerminal(final Node node) {
+        if (node.proxy instanceof PrimitiveArrayProxy) {
+            if (!((PrimitiveArrayProxy) node.proxy).contentEquals(node.referent)) {
+                node.proxy = PrimitiveArrayProxy.of(node.referent);
+                return true;
+            }
+        } else if (node.proxy instanceof PrimitiveWrapperArrayProxy) {
+            if (!Arrays.equals(((PrimitiveWrapperArrayProxy) node.proxy).array, (Object[]) node.referent)) {
+                node.proxy = new PrimitiveWrapperArrayProxy(((Object[]) node.referent).clone());
+                return true;
+            }
+        } else if (node.proxy instanceof ValueProxy) {
+            if (!((ValueProxy) node.proxy).isCurrent(node.referent)) {
+                node.proxy = this.config.terminalProxyFor(node.referent, node.referent.getClass());
+                return true;
+            }
+        }
+        return node.fresh;
+    }
+
+    private boolean scanComposite(final Node node) {
+        final Object obj = node.referent;
+        if (node.layout != null) {
+            final FieldLayout layout = node.layout;
+            final int size = layout.kinds.length;
+            boolean changed = node.children == null;
+            if (changed) {
+                node.children = new Node[size];
+            }
+            for (int i = 0; i < size; i++) {
+                if (layout.kinds[i] == FieldLayout.REFERENCE) {
+                    final Object value = layout.get(i, obj);
+                    final Node child = node.children[i];
+                    if (changed || (child == null ? value != null : child.referent != value)) {
+                        node.children[i] = nodeFor(value);
+                        changed = true;
+                    }
+                } else if (!changed) {
+                    final List<Proxy> values = ((AbstractCompositeObjectProxy) node.proxy).values;
+                    final long bits = values instanceof Slots
+                            ? ((Slots) values).bitsAt(i)
+                            : ((PrimitiveOrWrapperProxy) values.get(i)).bits;
+                    changed = bits != layout.getBits(i, obj);
+                }
+            }
+            return changed || node.fresh;
+        }
+        final Object[] elements = elementsOf(obj);
+        final Node[] children = node.children;
+        if (children != null && children.length == elements.length) {
+            boolean same = true;
+            for (int i = 0; i < elements.length && same; i++) {
+                same = children[i] == null ? elements[i] == null : children[i].referent == elements[i];
+            }
+            if (same) {
+                return node.fresh;
+            }
+        }
+        final Node[] fresh = new Node[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            fresh[i] = nodeFor(elements[i]);
+        }
+        node.children = fresh;
+        return true;
+    }
+
+    private void propagate() {
+        final int count = this.order.size();
+        final int[] starts = new int[count + 1];
+        int[] worklist = new int[16];
+        int top = 0;
+        for (int i = 0; i < count; i++) {
+            final Node node = this.order.get(i);
+            node.index = i;
+            node.dirty = node.changed;
+            if (node.dirty) {
+                if (top == worklist.length) {
+                    worklist = Arrays.copyOf(worklist, top << 1);
+                }
+                worklist[top++] = i;
+            }
+        }
+        if (top == 0) {
+            return;
+        }
+        for (final Node node : this.order) {
+            if (node.children != null) {
+                for (final Node child : node.children) {
+                    if (child != null) {
+                        starts[child.index + 1]++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            starts[i + 1] += starts[i];
+        }
+        final int[] parents = new int[starts[count]];
+        final int[] cursors = Arrays.copyOf(starts, count);
+        for (int i = 0; i < count; i++) {
+            final Node[] children = this.order.get(i).children;
+            if (children != null) {
+                for (final Node child : children) {
+                    if (child != null) {
+                        parents[cursors[child.index]++] = i;
+                    }
+                }
+            }
+        }
+        while (top > 0) {
+            final int child = worklist[--top];
+            for (int j = starts[child]; j < starts[child + 1]; j++) {
+                final Node parent = this.order.get(parents[j]);
+                if (!parent.dirty) {
+                    parent.dirty = true;
+                    if (top == worklist.length) {
+                        worklist = Arrays.copyOf(worklist, top << 1);
+                    }
+                    worklist[top++] = parents[j];
+                }
+            }
+        }
+    }
+
+    private void rebuild() {
+        final List<HashCollectionProxy> collections = new ArrayList<>();
+        for (final Node node : this.order) {
+            if (node.composite && node.dirty) {
+                node.proxy = newComposite(node, collections);
+            }
+        }
+        for (final Node node : this.order) {
+            if (node.composite && node.dirty) {
+                fill(node);
+            }
+            node.fresh = false;
+        }
+        for (int i = collections.size() - 1; i >= 0; i--) {
+            collections.get(i).seal();
+        }
+    }
+
+    private AbstractCompositeObjectProxy newComposite(final Node node, final List<HashCollectionProxy> collections) {
+        final Object obj = node.referent;
+        final Class<?> clazz = obj.getClass();
+        if (node.layout != null) {
+            return new ObjectProxy(clazz, Slots.forLayout(node.layout));
+        }
+        final List<Proxy> values = Arrays.asList(new Proxy[node.children.length]);
+        if (obj instanceof HashSet || obj instanceof HashMap || obj instanceof Hashtable) {
+            final HashCollectionProxy proxy = new HashCollectionProxy(clazz, values, obj instanceof HashSet ? 1 : 2);
+            collections.add(proxy);
+            return proxy;
+        }
+        return new ObjectArrayProxy(clazz, values);
+    }
+
+    private static void fill(final Node node) {
+        final List<Proxy> values = ((AbstractCompositeObjectProxy) node.proxy).values;
+        final FieldLayout layout = node.layout;
+        if (values instanceof Slots) {
+            final Slots slots = (Slots) values;
+            for (int i = 0; i < node.children.length; i++) {
+                final Node child = node.children[i];
+                if (layout.kinds[i] != FieldLayout.REFERENCE) {
+                    slots.setBits(i, layout.getBits(i, node.referent));
+                } else {
+                    slots.setReference(i, child == null ? Null.V : child.proxy);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < node.children.length; i++) {
+            final Node child = node.children[i];
+            if (child != null) {
+                values.set(i, child.proxy);
+            } else if (layout != null && layout.kinds[i] != FieldLayout.REFERENCE) {
+                values.set(i, new PrimitiveOrWrapperProxy(layout.kinds[i], layout.getBits(i, node.referent)));
+            } else {
+                values.set(i, Null.V);
+            }
+        }
+    }
+
+    private static Object[] elementsOf(final Object obj) {
+        if (obj instanceof HashSet) {
+            return ((HashSet<?>) obj).toArray();
+        }
+        if (obj instanceof HashMap || obj instanceof Hashtable) {
+            return ObjectUtils.flattenMap((Map<?, ?>) obj);
+        }
+        return (Object[]) obj;
+    }
+
+    private final class Node {
+        final Object referent;
+
+        final boolean composite;
+
+        final FieldLayout layout;
+
+        Proxy proxy;
+
+        Node[] children;
+
+        int epoch;
+
+        int index;
+
+        boolean fresh;
+
+        boolean changed;
+
+        boolean dirty;
+
+        Node(final Object referent, final Proxy terminal) {
+            this.referent = referent;
+            this.proxy = terminal;
+            this.composite = terminal == null;
+            this.fresh = true;
+            final Class<?> clazz = referent.getClass();
+            this.layout = this.composite && !clazz.isArray() && !(referent instanceof HashSet)
+                    && !(referent instanceof HashMap) && !(referent instanceof Hashtable)
+                    ? config.layoutOf(clazz)
+                    : null;
+        }
+    }
+}
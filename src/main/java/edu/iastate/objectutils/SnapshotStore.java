@@ -0,0 +1,420 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32;
+
+public final class SnapshotStore implements Closeable {
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private static final int DEFAULT_REGION_SIZE = 1 << 26;
+
+    private final int regionSize;
+
+    private final FileChannel data;
+
+    private final FileChannel index;
+
+    private final FileChannel types;
+
+    private final Map<Integer, Integer> fileTypeIds = new HashMap<>();
+
+    private final IntUnaryOperator processTypes = this::processTypeOf;
+
+    private volatile int[] processTypeIds = new int[16];
+
+    private int typeCount;
+
+    private long typesEnd;
+
+    private volatile Region[] regions = new Region[0];
+
+    private volatile long[] offsets = new long[16];
+
+    private volatile int size;
+
+    private long end;
+
+    private boolean closed;
+
+    private SnapshotStore(final Path path, final int regionSize) throws IOException {
+        this.regionSize = regionSize;
+        this.data = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(sibling(path, ".idx"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.types = FileChannel.open(sibling(path, ".types"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            loadTypes();
+            loadIndex();
+        } catch (final IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static SnapshotStore open(final Path path) throws IOException {
+        return new SnapshotStore(path, DEFAULT_REGION_SIZE);
+    }
+
+    public static SnapshotStore open(final Path path, final int regionSize) throws IOException {
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("Region size must be positive: " + regionSize);
+        }
+        return new SnapshotStore(path, regionSize);
+    }
+
+    public synchronized int append(final Object snapshot) throws IOException {
+        if (!(snapshot instanceof Proxy)) {
+            throw new IllegalArgumentException("Not a snapshot produced by ObjectUtils.makeSerializable");
+        }
+        ensureOpen();
+        final int knownTypes = this.typeCount;
+        final ByteBuffer encoded;
+        try {
+            encoded = SnapshotArena.encode((Proxy) snapshot, this::fileTypeOf);
+        } catch (final RuntimeException e) {
+            forgetTypes(knownTypes);
+            throw e;
+        }
+        final int length = encoded.remaining();
+        final int checksum = checksum(encoded, encoded.position(), length);
+        Region region = this.regions.length == 0 ? null : this.regions[this.regions.length - 1];
+        if (region == null || region.start + region.buffer.capacity() - this.end < length) {
+            region = map(this.end, Math.max(this.regionSize, length));
+            final Region[] regions = Arrays.copyOf(this.regions, this.regions.length + 1);
+            regions[regions.length - 1] = region;
+            this.regions = regions;
+        }
+        final ByteBuffer target = region.buffer.duplicate();
+        target.position((int) (this.end - region.start));
+        target.put(encoded);
+
+        if (knownTypes < this.typeCount) {
+            writeTypes(knownTypes);
+        }
+        final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        entry.putLong(this.end).putInt(length).putInt(checksum).flip();
+        writeFully(this.index, entry, (long) this.size * INDEX_ENTRY_SIZE);
+
+        final int id = this.size;
+        long[] offsets = this.offsets;
+        if (id == offsets.length) {
+            offsets = Arrays.copyOf(offsets, id << 1);
+        }
+        offsets[id] = this.end;
+        this.offsets = offsets;
+        this.end += length;
+        this.size = id + 1;
+        return id;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public Object get(final int id) {
+        final Region region = regionOf(id);
+        return SnapshotArena.decode(region.buffer, baseOf(region, id), this.processTypes);
+    }
+
+    public boolean deepEquals(final int id, final Object snapshot) {
+        return walker(id, snapshot).deepEquals();
+    }
+
+    public boolean deepEquals(final int lhs, final int rhs) {
+        return walker(lhs, rhs).deepEquals();
+    }
+
+    public double extendedHammingDistance(final int id, final Object snapshot) {
+        return walker(id, snapshot).distance();
+    }
+
+    public double extendedHammingDistance(final int lhs, final int rhs) {
+        return walker(lhs, rhs).distance();
+    }
+
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        for (final Region region : this.regions) {
+            region.buffer.force();
+        }
+        this.types.force(false);
+        this.index.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.regions = new Region[0];
+        try {
+            this.data.close();
+        } finally {
+            try {
+                this.index.close();
+            } finally {
+                this.types.close();
+            }
+        }
+    }
+
+    private ArenaWalker walker(final int id, final Object snapshot) {
+        if (!(snapshot instanceof Proxy)) {
+            throw new IllegalArgumentException("Not a snapshot produced by ObjectUtils.makeSerializable");
+        }
+        final Region region = regionOf(id);
+        final ByteBuffer encoded = SnapshotArena.encode((Proxy) snapshot, IntUnaryOperator.identity());
+        return new ArenaWalker(region.buffer, baseOf(region, id), this.processTypes,
+                encoded, 0, IntUnaryOperator.identity());
+    }
+
+    private ArenaWalker walker(final int lhs, final int rhs) {
+        final Region lhsRegion = regionOf(lhs);
+        final Region rhsRegion = regionOf(rhs);
+        return new ArenaWalker(lhsRegion.buffer, baseOf(lhsRegion, lhs), this.processTypes,
+                rhsRegion.buffer, baseOf(rhsRegion, rhs), this.processTypes);
+    }
+
+    private Region regionOf(final int id) {
+        final int size = this.size;
+        final long[] offsets = this.offsets;
+        final Region[] regions = this.regions;
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Snapshot id " + id + " out of range [0, " + size + ")");
+        }
+        if (regions.length == 0) {
+            throw new IllegalStateException("Snapshot store is closed");
+        }
+        final long offset = offsets[id];
+        int low = 0;
+        int high = regions.length - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (regions[mid].start <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return regions[low];
+    }
+
+    private int baseOf(final Region region, final int id) {
+        return (int) (this.offsets[id] - region.start);
+    }
+
+    private int fileTypeOf(final int typeId) {
+        final Integer existing = this.fileTypeIds.get(typeId);
+        if (existing != null) {
+            return existing;
+        }
+        final int fileTypeId = this.typeCount;
+        registerType(fileTypeId, typeId);
+        return fileTypeId;
+    }
+
+    private int processTypeOf(final int fileTypeId) {
+        return this.processTypeIds[fileTypeId];
+    }
+
+    private void registerType(final int fileTypeId, final int typeId) {
+        int[] processTypeIds = this.processTypeIds;
+        if (fileTypeId == processTypeIds.length) {
+            processTypeIds = Arrays.copyOf(processTypeIds, fileTypeId << 1);
+        }
+        processTypeIds[fileTypeId] = typeId;
+        this.processTypeIds = processTypeIds;
+        this.fileTypeIds.put(typeId, fileTypeId);
+        this.typeCount = fileTypeId + 1;
+    }
+
+    private void forgetTypes(final int knownTypes) {
+        for (int i = knownTypes; i < this.typeCount; i++) {
+            this.fileTypeIds.remove(this.processTypeIds[i]);
+        }
+        this.typeCount = knownTypes;
+    }
+
+    private void writeTypes(final int from) throws IOException {
+        final List<byte[]> names = new ArrayList<>();
+        int length = 0;
+        for (int i = from; i < this.typeCount; i++) {
+            final byte[] name = TypeTable.nameOf(this.processTypeIds[i]).getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            length += 4 + name.length;
+        }
+        final ByteBuffer out = ByteBuffer.allocate(length);
+        for (final byte[] name : names) {
+            out.putInt(name.length).put(name);
+        }
+        out.flip();
+        writeFully(this.types, out, this.typesEnd);
+        this.typesEnd += length;
+    }
+
+    private void loadTypes() throws IOException {
+        final long length = this.types.size();
+        if (length == 0L) {
+            return;
+        }
+        final ByteBuffer in = this.types.map(FileChannel.MapMode.READ_ONLY, 0L, length);
+        while (in.remaining() >= 4) {
+            final int nameLength = in.getInt();
+            if (nameLength < 0 || nameLength > in.remaining()) {
+                break;
+            }
+            final byte[] name = new byte[nameLength];
+            in.get(name);
+            registerType(this.typeCount, TypeTable.idOf(new String(name, StandardCharsets.UTF_8)));
+            this.typesEnd = in.position();
+        }
+        if (this.typesEnd < length) {
+            this.types.truncate(this.typesEnd);
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        final long entries = this.index.size() / INDEX_ENTRY_SIZE;
+        if (entries > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot index too large: " + entries + " entries");
+        }
+        int count = (int) entries;
+        final long[] offsets = new long[Math.max(16, count)];
+        final int[] lengths = new int[count];
+        final int[] checksums = new int[count];
+        final List<Region> regions = new ArrayList<>();
+        final long dataSize = this.data.size();
+        if (count > 0) {
+            final ByteBuffer in = this.index.map(FileChannel.MapMode.READ_ONLY, 0L, (long) count * INDEX_ENTRY_SIZE);
+            long regionStart = 0L;
+            long regionEnd = 0L;
+            for (int i = 0; i < count; i++) {
+                final long offset = in.getLong();
+                final int length = in.getInt();
+                if (offset != regionEnd || length < 0) {
+                    throw new IOException("Corrupt snapshot index entry " + i);
+                }
+                if (offset + length - regionStart > Math.max(this.regionSize, length)) {
+                    regions.add(map(regionStart, (int) (regionEnd - regionStart)));
+                    regionStart = offset;
+                }
+                offsets[i] = offset;
+                lengths[i] = length;
+                checksums[i] = in.getInt();
+                regionEnd = offset + length;
+            }
+            regions.add(map(regionStart, (int) Math.max(this.regionSize, regionEnd - regionStart)));
+            final int intact = verify(regions, offsets, lengths, checksums, dataSize);
+            if (intact < count) {
+                this.index.truncate((long) intact * INDEX_ENTRY_SIZE);
+                regionEnd = offsets[intact];
+                while (regions.size() > 1 && regions.get(regions.size() - 1).start > regionEnd) {
+                    regions.remove(regions.size() - 1);
+                }
+                count = intact;
+            }
+            this.end = regionEnd;
+        }
+        this.offsets = offsets;
+        this.regions = regions.toArray(new Region[0]);
+        this.size = count;
+    }
+
+    private static int verify(final List<Region> regions, final long[] offsets, final int[] lengths,
+                              final int[] checksums, final long dataSize) throws IOException {
+        int intact = lengths.length;
+        int region = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            while (region + 1 < regions.size() && regions.get(region + 1).start <= offsets[i]) {
+                region++;
+            }
+            final Region r = regions.get(region);
+            final boolean valid = offsets[i] + lengths[i] <= dataSize
+                    && checksum(r.buffer, (int) (offsets[i] - r.start), lengths[i]) == checksums[i];
+            if (!valid && intact == lengths.length) {
+                intact = i;
+            } else if (valid && intact < lengths.length) {
+                throw new IOException("Corrupt snapshot " + intact + ": checksum mismatch");
+            }
+        }
+        return intact;
+    }
+
+    private static int checksum(final ByteBuffer buffer, final int position, final int length) {
+        final ByteBuffer record = buffer.duplicate();
+        record.limit(position + length);
+        record.position(position);
+        final CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private Region map(final long start, final int length) throws IOException {
+        return new Region(start, this.data.map(FileChannel.MapMode.READ_WRITE, start, length));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Snapshot store is closed");
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long at = position;
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+    }
+
+    private static Path sibling(final Path path, final String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    private static final class Region {
+        final long start;
+
+        final MappedByteBuffer buffer;
+
+        Region(final long start, final MappedByteBuffer buffer) {
+            this.start = start;
+            this.buffer = buffer;
+        }
+    }
+}
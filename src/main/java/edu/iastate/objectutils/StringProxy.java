@@ -0,0 +1,60 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+class StringProxy implements TerminalProxy {
+    private static final long serialVersionUID = 1L;
+
+    final String value;
+
+    StringProxy(final String value) {
+        this.value = value;
+    }
+
+    int mismatches(final StringProxy that) {
+        final String a = this.value;
+        final String b = that.value;
+        final int common = Math.min(a.length(), b.length());
+        int count = Math.max(a.length(), b.length()) - common;
+        for (int i = 0; i < common; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StringProxy)) {
+            return false;
+        }
+        return this.value.equals(((StringProxy) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.value.hashCode();
+    }
+}
@@ -0,0 +1,369 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class TraversalContext {
+    private static final int MAX_RETAINED_SIZE = 1 << 16;
+
+    private static final int INITIAL_STACK_SIZE = 16;
+
+    private static final int MAX_POOLED_CONTEXTS = 8;
+
+    private static final ThreadLocal<TraversalContext> CONTEXTS =
+            ThreadLocal.withInitial(() -> new TraversalContext(true));
+
+    Set<Object> lhsVisited;
+
+    Set<Object> rhsVisited;
+
+    Map<Object, Object> pairs;
+
+    List<Object> undoLog;
+
+    Map<Object, Integer> ranks;
+
+    Map<Object, Proxy> proxyCache;
+
+    List<HashCollectionProxy> collections;
+
+    Object[] objects;
+
+    Object[] rhsObjects;
+
+    FieldLayout[] layouts;
+
+    AbstractCompositeObjectProxy[] proxies;
+
+    int[] cursors;
+
+    int[] lengths;
+
+    int[] depths;
+
+    int top;
+
+    AbstractCompositeObjectProxy[] lhsFrames;
+
+    AbstractCompositeObjectProxy[] rhsFrames;
+
+    int[] pairCursors;
+
+    int[] pairHashes;
+
+    int pairTop;
+
+    Matching[] matchings;
+
+    int matchTop;
+
+    AbstractCompositeObjectProxy[] ranked;
+
+    int[] lowLinks;
+
+    int[] components;
+
+    int rankTop;
+
+    int rankedTop;
+
+    boolean inUse;
+
+    private final boolean pooled;
+
+    private TraversalContext next;
+
+    private TraversalContext(final boolean pooled) {
+        this.pooled = pooled;
+        allocate();
+    }
+
+    private void allocate() {
+        this.lhsVisited = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.rhsVisited = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.pairs = new IdentityHashMap<>();
+        this.undoLog = new ArrayList<>();
+        this.ranks = new IdentityHashMap<>();
+        this.proxyCache = new IdentityHashMap<>();
+        this.collections = new ArrayList<>();
+        this.objects = new Object[INITIAL_STACK_SIZE];
+        this.rhsObjects = new Object[INITIAL_STACK_SIZE];
+        this.layouts = new FieldLayout[INITIAL_STACK_SIZE];
+        this.proxies = new AbstractCompositeObjectProxy[INITIAL_STACK_SIZE];
+        this.cursors = new int[INITIAL_STACK_SIZE];
+        this.lengths = new int[INITIAL_STACK_SIZE];
+        this.depths = new int[INITIAL_STACK_SIZE];
+        this.lhsFrames = new AbstractCompositeObjectProxy[INITIAL_STACK_SIZE];
+        this.rhsFrames = new AbstractCompositeObjectProxy[INITIAL_STACK_SIZE];
+        this.pairCursors = new int[INITIAL_STACK_SIZE];
+        this.pairHashes = new int[INITIAL_STACK_SIZE];
+        this.matchings = new Matching[INITIAL_STACK_SIZE];
+        this.ranked = new AbstractCompositeObjectProxy[INITIAL_STACK_SIZE];
+        this.lowLinks = new int[INITIAL_STACK_SIZE];
+        this.components = new int[INITIAL_STACK_SIZE];
+    }
+
+    static TraversalContext acquire() {
+        TraversalContext context = CONTEXTS.get();
+        for (int pooled = 1; context.inUse; pooled++) {
+            if (context.next == null) {
+                final TraversalContext fresh = new TraversalContext(pooled < MAX_POOLED_CONTEXTS);
+                if (fresh.pooled) {
+                    context.next = fresh;
+                }
+                context = fresh;
+                break;
+            }
+            context = context.next;
+        }
+        context.inUse = true;
+        return context;
+    }
+
+    static void release(final TraversalContext context) {
+        if (!context.pooled) {
+            return;
+        }
+        if (context.isReusable()) {
+            context.clear();
+        } else {
+            context.allocate();
+            context.top = 0;
+            context.pairTop = 0;
+            context.matchTop = 0;
+            context.rankTop = 0;
+            context.rankedTop = 0;
+            context.inUse = false;
+        }
+    }
+
+    void push(final Object obj,
+              final FieldLayout layout,
+              final AbstractCompositeObjectProxy proxy,
+              final int length,
+              final int depth) {
+        final int frame = this.top;
+        if (frame == this.objects.length) {
+            grow();
+        }
+        this.objects[frame] = obj;
+        this.layouts[frame] = layout;
+        this.proxies[frame] = proxy;
+        this.cursors[frame] = 0;
+        this.lengths[frame] = length;
+        this.depths[frame] = depth;
+        this.top = frame + 1;
+    }
+
+    void pushLive(final Object lhs, final Object rhs, final FieldLayout layout, final int length, final int depth) {
+        final int frame = this.top;
+        if (frame == this.objects.length) {
+            grow();
+        }
+        this.objects[frame] = lhs;
+        this.rhsObjects[frame] = rhs;
+        this.layouts[frame] = layout;
+        this.cursors[frame] = 0;
+        this.lengths[frame] = length;
+        this.depths[frame] = depth;
+        this.top = frame + 1;
+    }
+
+    private void grow() {
+        final int capacity = this.objects.length << 1;
+        this.objects = Arrays.copyOf(this.objects, capacity);
+        this.rhsObjects = Arrays.copyOf(this.rhsObjects, capacity);
+        this.layouts = Arrays.copyOf(this.layouts, capacity);
+        this.proxies = Arrays.copyOf(this.proxies, capacity);
+        this.cursors = Arrays.copyOf(this.cursors, capacity);
+        this.lengths = Arrays.copyOf(this.lengths, capacity);
+        this.depths = Arrays.copyOf(this.depths, capacity);
+    }
+
+    void pop() {
+        final int frame = --this.top;
+        this.objects[frame] = null;
+        this.rhsObjects[frame] = null;
+        this.layouts[frame] = null;
+        this.proxies[frame] = null;
+    }
+
+    void pushPair(final AbstractCompositeObjectProxy lhs, final AbstractCompositeObjectProxy rhs) {
+        final int frame = this.pairTop;
+        if (frame == this.lhsFrames.length) {
+            final int capacity = frame << 1;
+            this.lhsFrames = Arrays.copyOf(this.lhsFrames, capacity);
+            this.rhsFrames = Arrays.copyOf(this.rhsFrames, capacity);
+            this.pairCursors = Arrays.copyOf(this.pairCursors, capacity);
+            this.pairHashes = Arrays.copyOf(this.pairHashes, capacity);
+        }
+        this.lhsFrames[frame] = lhs;
+        this.rhsFrames[frame] = rhs;
+        this.pairCursors[frame] = 0;
+        this.pairHashes[frame] = 0;
+        this.pairTop = frame + 1;
+    }
+
+    Object pairedWith(final Object lhs) {
+        return this.pairs.get(lhs);
+    }
+
+    void pair(final Object lhs, final Object rhs) {
+        this.pairs.put(lhs, rhs);
+        this.rhsVisited.add(rhs);
+        if (this.matchTop > 0) {
+            this.undoLog.add(lhs);
+        }
+    }
+
+    void undo(final int mark) {
+        for (int i = this.undoLog.size() - 1; i >= mark; i--) {
+            this.rhsVisited.remove(this.pairs.remove(this.undoLog.remove(i)));
+        }
+    }
+
+    Matching pushMatching(final int frame, final int size, final int limit) {
+        if (this.matchTop == this.matchings.length) {
+            this.matchings = Arrays.copyOf(this.matchings, this.matchTop << 1);
+        }
+        Matching matching = this.matchings[this.matchTop];
+        if (matching == null) {
+            matching = new Matching();
+            this.matchings[this.matchTop] = matching;
+        }
+        this.matchTop++;
+        matching.frame = frame;
+        matching.entry = 0;
+        matching.unmatched = 0;
+        matching.limit = limit;
+        matching.runStart = 0;
+        matching.runEnd = 0;
+        if (matching.used == null || matching.used.length < size) {
+            matching.used = new boolean[size];
+        } else {
+            Arrays.fill(matching.used, 0, size, false);
+        }
+        return matching;
+    }
+
+    Matching topMatching() {
+        return this.matchings[this.matchTop - 1];
+    }
+
+    int rank(final AbstractCompositeObjectProxy node) {
+        final int rank = this.rankTop;
+        if (rank == this.ranked.length) {
+            final int capacity = rank << 1;
+            this.ranked = Arrays.copyOf(this.ranked, capacity);
+            this.lowLinks = Arrays.copyOf(this.lowLinks, capacity);
+            this.components = Arrays.copyOf(this.components, capacity);
+        }
+        this.ranks.put(node, rank);
+        this.ranked[this.rankedTop++] = node;
+        this.lowLinks[rank] = rank;
+        this.components[rank] = -1;
+        this.rankTop = rank + 1;
+        return rank;
+    }
+
+    void popPair() {
+        final int frame = --this.pairTop;
+        this.lhsFrames[frame] = null;
+        this.rhsFrames[frame] = null;
+    }
+
+    private boolean isReusable() {
+        return this.lhsVisited.size() <= MAX_RETAINED_SIZE
+                && this.rhsVisited.size() <= MAX_RETAINED_SIZE
+                && this.pairs.size() <= MAX_RETAINED_SIZE
+                && this.ranks.size() <= MAX_RETAINED_SIZE
+                && this.ranked.length <= MAX_RETAINED_SIZE
+                && this.proxyCache.size() <= MAX_RETAINED_SIZE
+                && this.objects.length <= MAX_RETAINED_SIZE
+                && this.lhsFrames.length <= MAX_RETAINED_SIZE;
+    }
+
+    private void clear() {
+        if (!this.lhsVisited.isEmpty()) {
+            this.lhsVisited.clear();
+        }
+        if (!this.rhsVisited.isEmpty()) {
+            this.rhsVisited.clear();
+        }
+        if (!this.pairs.isEmpty()) {
+            this.pairs.clear();
+        }
+        this.undoLog.clear();
+        if (!this.ranks.isEmpty()) {
+            this.ranks.clear();
+        }
+        Arrays.fill(this.ranked, 0, this.rankedTop, null);
+        this.rankTop = 0;
+        this.rankedTop = 0;
+        if (!this.proxyCache.isEmpty()) {
+            this.proxyCache.clear();
+        }
+        this.collections.clear();
+        Arrays.fill(this.objects, 0, this.top, null);
+        Arrays.fill(this.rhsObjects, 0, this.top, null);
+        Arrays.fill(this.layouts, 0, this.top, null);
+        Arrays.fill(this.proxies, 0, this.top, null);
+        this.top = 0;
+        Arrays.fill(this.lhsFrames, 0, this.pairTop, null);
+        Arrays.fill(this.rhsFrames, 0, this.pairTop, null);
+        this.pairTop = 0;
+        this.matchTop = 0;
+        this.inUse = false;
+    }
+
+    static final class Matching {
+        int frame;
+
+        int entry;
+
+        int candidate;
+
+        int runStart;
+
+        int runEnd;
+
+        int unmatched;
+
+        int limit;
+
+        int mark;
+
+        int arity;
+
+        int[] lhsHashes;
+
+        int[] rhsHashes;
+
+        boolean[] used;
+    }
+}
@@ -0,0 +1,75 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+final class TypeTable {
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Integer> CLASS_IDS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(final Class<?> type) {
+            return idOf(type.getTypeName());
+        }
+    };
+
+    private static volatile String[] names = new String[256];
+
+    private static int size;
+
+    private TypeTable() {
+        throw new UnsupportedOperationException();
+    }
+
+    static int idOf(final Class<?> type) {
+        return CLASS_IDS.get(type);
+    }
+
+    static int idOf(final String typeName) {
+        final Integer id = IDS.get(typeName);
+        if (id != null) {
+            return id;
+        }
+        return register(typeName);
+    }
+
+    private static synchronized int register(final String typeName) {
+        final Integer existing = IDS.get(typeName);
+        if (existing != null) {
+            return existing;
+        }
+        String[] table = names;
+        if (size == table.length) {
+            table = Arrays.copyOf(table, size << 1);
+        }
+        table[size] = typeName;
+        names = table;
+        IDS.put(typeName, size);
+        return size++;
+    }
+
+    static String nameOf(final int id) {
+        return names[id];
+    }
+}
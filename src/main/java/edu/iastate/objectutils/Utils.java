@@ -20,29 +20,26 @@ package edu.iastate.objectutils;
  * #L%
  */
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Objects;
 import java.util.Set;
 
 final class Utils {
-    private static final Set<String> JDK_CLASSES;
+    private static final ClassLoader PLATFORM_LOADER = ClassLoader.getSystemClassLoader().getParent();
 
-    static {
-        JDK_CLASSES = new HashSet<>();
-        final ClassLoader classloader = Thread.currentThread().getContextClassLoader();
-        final InputStream is = classloader.getResourceAsStream("jdk-classes.txt");
-        try (InputStreamReader isr = new InputStreamReader(Objects.requireNonNull(is));
-             BufferedReader reader = new BufferedReader(isr)) {
-            for (String line; (line = reader.readLine()) != null; ) {
-                JDK_CLASSES.add(line);
-            }
-        } catch (final IOException ignored) { }
+    private static final Set<String> JDK_VALUE_TYPES = new HashSet<>(Arrays.asList(
+            "java.math.BigDecimal",
+            "java.math.BigInteger",
+            "java.net.URI",
+            "java.util.Locale",
+            "java.util.UUID"));
+
+    private static final String[] JDK_VALUE_PACKAGES = {"java.time.", "java.time.chrono."};
+
+    private static final class JDKClasses {
+        static final JDKClassIndex INDEX = JDKClassIndex.load();
     }
 
     private Utils() {
@@ -50,11 +47,32 @@ final class Utils {
     }
 
     static boolean isJDKClass(final String className) {
-        return JDK_CLASSES.contains(className);
+        return className.startsWith("java.") || JDKClasses.INDEX.contains(className);
     }
 
     static boolean isJDKClass(final Class<?> clazz) {
-        return isJDKClass(clazz.getName());
+        if (clazz.isArray() || clazz.isPrimitive()) {
+            return false;
+        }
+        final ClassLoader loader = clazz.getClassLoader();
+        return loader == null || loader == PLATFORM_LOADER || isJDKClass(clazz.getName());
+    }
+
+    static boolean isJDKValueType(final Class<?> clazz) {
+        final String className = clazz.getName();
+        if (JDK_VALUE_TYPES.contains(className)) {
+            return true;
+        }
+        if (!Modifier.isFinal(clazz.getModifiers()) || !isJDKClass(clazz) || !hasEquals(clazz)) {
+            return false;
+        }
+        final int lastDot = className.lastIndexOf('.');
+        for (final String pkg : JDK_VALUE_PACKAGES) {
+            if (lastDot + 1 == pkg.length() && className.startsWith(pkg)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     static boolean hasEquals(final Class<?> clazz) {
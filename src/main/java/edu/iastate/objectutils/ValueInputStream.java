@@ -0,0 +1,81 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class ValueInputStream extends ObjectInputStream {
+    private static final Set<Class<?>> VALUE_TYPES = ConcurrentHashMap.newKeySet();
+
+    ValueInputStream(final InputStream in) throws IOException {
+        super(in);
+    }
+
+    static void register(final Class<?> valueType) {
+        VALUE_TYPES.add(valueType);
+    }
+
+    @Override
+    protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        final Class<?> clazz = super.resolveClass(desc);
+        if (!isAllowed(clazz)) {
+            throw new InvalidClassException(clazz.getName(), "not an allowlisted value type");
+        }
+        return clazz;
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException {
+        throw new InvalidClassException("proxy", "not an allowlisted value type");
+    }
+
+    private static boolean isAllowed(final Class<?> clazz) {
+        if (clazz.isArray()) {
+            return clazz.getComponentType().isPrimitive();
+        }
+        if (clazz == String.class || clazz == Boolean.class || clazz == Character.class
+                || clazz == Number.class || clazz == Enum.class) {
+            return true;
+        }
+        if (clazz.getClassLoader() == null) {
+            final String name = clazz.getName();
+            if (name.startsWith("java.time.") || name.startsWith("java.math.")
+                    || (name.startsWith("java.lang.") && Number.class.isAssignableFrom(clazz))) {
+                return true;
+            }
+        }
+        if (Utils.isJDKValueType(clazz)) {
+            return true;
+        }
+        for (final Class<?> valueType : VALUE_TYPES) {
+            if (clazz.isAssignableFrom(valueType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
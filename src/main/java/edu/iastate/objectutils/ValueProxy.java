@@ -20,30 +20,33 @@ package edu.iastate.objectutils;
  * #L%
  */
 
-class W<T> {
-    final T value;
+class ValueProxy implements TerminalProxy {
+    private static final long serialVersionUID = 1L;
 
-    final int id;
+    final Object value;
 
-    W(final T value) {
-        this.id = System.identityHashCode(value);
+    ValueProxy(final Object value) {
         this.value = value;
     }
 
-    @Override
-    public int hashCode() {
-        return this.id;
+    boolean isCurrent(final Object referent) {
+        return this.value == referent || this.value.equals(referent);
     }
 
     @Override
-    public boolean equals(final Object obj) {
-        if (!(obj instanceof W)) {
-            return false;
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
         }
-        final W<?> that = (W<?>) obj;
-        if (this.id != that.id) {
+        if (!(o instanceof ValueProxy)) {
             return false;
         }
-        return this.value == that.value;
+        final Object that = ((ValueProxy) o).value;
+        return this.value.getClass() == that.getClass() && this.value.equals(that);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.value.hashCode();
     }
 }
@@ -0,0 +1,134 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.apache.commons.lang3.ClassUtils.wrapperToPrimitive;
+
+final class WireFormat {
+    static final int MAGIC = 0x4F555058;
+
+    static final byte VERSION = 1;
+
+    static final byte NULL = 0;
+
+    static final byte SKIPPED = 1;
+
+    static final byte PRIMITIVE = 2;
+
+    static final byte PRIMITIVE_ARRAY = 3;
+
+    static final byte WRAPPER_ARRAY = 4;
+
+    static final byte ENUM = 5;
+
+    static final byte OBJECT = 6;
+
+    static final byte OBJECT_ARRAY = 7;
+
+    static final byte BACK_REFERENCE = 8;
+
+    static final byte HASH_COLLECTION = 9;
+
+    static final byte STRING = 10;
+
+    static final byte VALUE = 11;
+
+    static final byte VOID = 8;
+
+    private WireFormat() {
+        throw new UnsupportedOperationException();
+    }
+
+    static byte wrapperKindOf(final Class<?> arrayType) {
+        final Class<?> componentType = arrayType.getComponentType();
+        if (componentType == Void.class) {
+            return VOID;
+        }
+        return PrimitiveOrWrapperProxy.kindOf(wrapperToPrimitive(componentType));
+    }
+
+    static Object[] newWrapperArray(final byte kind, final int length) {
+        switch (kind) {
+            case PrimitiveOrWrapperProxy.BOOLEAN:
+                return new Boolean[length];
+            case PrimitiveOrWrapperProxy.BYTE:
+                return new Byte[length];
+            case PrimitiveOrWrapperProxy.CHAR:
+                return new Character[length];
+            case PrimitiveOrWrapperProxy.SHORT:
+                return new Short[length];
+            case PrimitiveOrWrapperProxy.INT:
+                return new Integer[length];
+            case PrimitiveOrWrapperProxy.LONG:
+                return new Long[length];
+            case PrimitiveOrWrapperProxy.FLOAT:
+                return new Float[length];
+            case PrimitiveOrWrapperProxy.DOUBLE:
+                return new Double[length];
+            case VOID:
+                return new Void[length];
+            default:
+                throw new IllegalArgumentException("Malformed proxy stream: unknown wrapper kind " + kind);
+        }
+    }
+
+    static Object toWrapper(final byte kind, final long bits) {
+        switch (kind) {
+            case PrimitiveOrWrapperProxy.BOOLEAN:
+                return bits != 0L;
+            case PrimitiveOrWrapperProxy.BYTE:
+                return (byte) bits;
+            case PrimitiveOrWrapperProxy.CHAR:
+                return (char) bits;
+            case PrimitiveOrWrapperProxy.SHORT:
+                return (short) bits;
+            case PrimitiveOrWrapperProxy.INT:
+                return (int) bits;
+            case PrimitiveOrWrapperProxy.LONG:
+                return bits;
+            case PrimitiveOrWrapperProxy.FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            case PrimitiveOrWrapperProxy.DOUBLE:
+                return Double.longBitsToDouble(bits);
+            default:
+                throw new IllegalArgumentException("Malformed proxy stream: unknown primitive kind " + kind);
+        }
+    }
+
+    static int widthOf(final byte kind) {
+        switch (kind) {
+            case PrimitiveOrWrapperProxy.BOOLEAN:
+            case PrimitiveOrWrapperProxy.BYTE:
+                return 1;
+            case PrimitiveOrWrapperProxy.CHAR:
+            case PrimitiveOrWrapperProxy.SHORT:
+                return 2;
+            case PrimitiveOrWrapperProxy.INT:
+            case PrimitiveOrWrapperProxy.FLOAT:
+                return 4;
+            case PrimitiveOrWrapperProxy.LONG:
+            case PrimitiveOrWrapperProxy.DOUBLE:
+                return 8;
+            default:
+                throw new IllegalArgumentException("Malformed proxy stream: unknown primitive kind " + kind);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyTest {
+    @Test
+    public void testSharedInstance() throws Exception {
+        final ObjectUtils ou = ObjectUtils.build();
+        final int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        final B obj1 = new C1(seed, i, "hello" + i);
+                        final B obj2 = new C1(seed, i, "hello" + i);
+                        final B obj3 = new C1(seed, i + 1, "hello" + i);
+                        final Object s1 = ou.makeSerializable(obj1);
+                        final Object s2 = ou.makeSerializable(obj2);
+                        final Object s3 = ou.makeSerializable(obj3);
+                        if (!ou.deepEquals(s1, s2) || ou.deepEquals(s1, s3)) {
+                            return false;
+                        }
+                        if (ou.extendedHammingDistance(s1, s2) != 0D
+                                || ou.extendedHammingDistance(s1, s3) == 0D) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReentrantCall() {
+        final AtomicReference<ObjectUtils> self = new AtomicReference<>();
+        final ObjectUtils ou = ObjectUtils.build().include(field -> {
+            final ObjectUtils inner = self.get();
+            return inner.deepEquals(inner.makeSerializable(42), inner.makeSerializable(42));
+        });
+        self.set(ou);
+        final Object s1 = ou.makeSerializable(new Student("a", "b", 3.D));
+        final Object s2 = ou.makeSerializable(new Student("a", "b", 3.D));
+        assertTrue(ou.deepEquals(s1, s2));
+        assertFalse(ou.deepEquals(s1, ou.makeSerializable(new Student("a", "c", 3.D))));
+        assertEquals(1D, ou.extendedHammingDistance(s1, ou.makeSerializable(new Student("a", "b", 2.D))), 1e-5);
+    }
+
+    @Test
+    public void testParallelSnapshot() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Student shared = new Student("shared", "student", 4.D);
+        final Object[] graph = new Object[20_000];
+        for (int i = 0; i < graph.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    graph[i] = new C1(i, i, "c" + i);
+                    break;
+                case 1:
+                    graph[i] = shared;
+                    break;
+                case 2: {
+                    final Map<Object, Object> map = new HashMap<>();
+                    final Set<Object> set = new HashSet<>();
+                    set.add(i);
+                    set.add(shared);
+                    map.put("set", set);
+                    map.put("self", map);
+                    graph[i] = map;
+                    break;
+                }
+                default:
+                    graph[i] = new Object[] {graph, new int[] {i}};
+            }
+        }
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final Object sequential = ou.makeSerializable(graph);
+            final Object parallel = ou.makeSerializable(graph, pool);
+            assertTrue(ou.deepEquals(sequential, parallel));
+            assertEquals(sequential.hashCode(), parallel.hashCode());
+            assertEquals(ProxyWriter.write(sequential), ProxyWriter.write(parallel));
+            final List<Proxy> values = ((ObjectArrayProxy) parallel).values;
+            assertSame(values.get(1), values.get(5));
+            assertSame(parallel, ((ObjectArrayProxy) values.get(3)).values.get(0));
+            graph[4] = new C1(-1, -1, "changed");
+            assertFalse(ou.deepEquals(sequential, ou.makeSerializable(graph, pool)));
+            Object[] chain = null;
+            for (int i = 0; i < 200_000; i++) {
+                chain = new Object[] {i, chain};
+            }
+            assertTrue(ou.deepEquals(ou.makeSerializable(chain), ou.makeSerializable(chain, pool)));
+            assertTrue(ou.deepEquals(ou.makeSerializable(chain), ou.makeSerializable(chain, new ForkJoinPool(1))));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
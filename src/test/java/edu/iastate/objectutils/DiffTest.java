@@ -0,0 +1,159 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DiffTest {
+    @Test
+    public void testFieldPaths() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Order o1 = new Order("o-1", new Item("a", 1.5D), new Item("b", 2D), new Item("c", 3D));
+        final Order o2 = new Order("o-1", new Item("a", 1.5D), new Item("b", 2D), new Item("c", 3D));
+        assertFalse(ou.diff(ou.makeSerializable(o1), ou.makeSerializable(o2)).findAny().isPresent());
+        o2.items[1].price = 2.5D;
+        o2.items[2].quantities[1] = 7;
+        o2.unit = TimeUnit.HOURS;
+        final List<Difference> differences = ou.diff(ou.makeSerializable(o1), ou.makeSerializable(o2))
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(
+                new Difference("root.unit", "SECONDS", "HOURS"),
+                new Difference("root.items[1].price", 2D, 2.5D),
+                new Difference("root.items[2].quantities[1]", 1, 7)), differences);
+    }
+
+    @Test
+    public void testShapeChanges() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Order o1 = new Order("o-1", new Item("a", 1D));
+        final Order o2 = new Order("o-2", new Item("a", 1D), new Item("b", 1D));
+        o2.items[0].quantities = new int[] {1};
+        o2.items[0].name = null;
+        final List<Difference> differences = ou.diff(ou.makeSerializable(o1), ou.makeSerializable(o2))
+                .collect(Collectors.toList());
+        assertEquals(2, differences.size());
+        assertEquals(new Difference("root.id", "o-1", "o-2"), differences.get(0));
+        assertEquals(new Difference("root.items.length", 1, 2), differences.get(1));
+        final Object[] a1 = {o1.items[0]};
+        final Object[] a2 = {o2.items[0]};
+        assertEquals(Arrays.asList(
+                new Difference("root[0].name", "a", null),
+                new Difference("root[0].quantities.length", 2, 1)),
+                ou.diff(ou.makeSerializable(a1), ou.makeSerializable(a2)).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testLazy() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final int[] a1 = new int[100_000];
+        final int[] a2 = new int[100_000];
+        Arrays.fill(a2, 1);
+        final Iterator<Difference> differences = ou.diff(ou.makeSerializable(a1), ou.makeSerializable(a2)).iterator();
+        assertTrue(differences.hasNext());
+        assertEquals(new Difference("root[0]", 0, 1), differences.next());
+        assertEquals(new Difference("root[1]", 0, 1), differences.next());
+        assertEquals(3, ou.diff(ou.makeSerializable(a1), ou.makeSerializable(a2)).limit(3).count());
+    }
+
+    @Test
+    public void testDiffAfterWireRoundTrip() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Order o1 = new Order("o-1", new Item("a", 1D));
+        final Order o2 = new Order("o-1", new Item("a", 4D));
+        final Object loaded = ProxyReader.read(ProxyWriter.write(ou.makeSerializable(o1)));
+        assertEquals(Arrays.asList(new Difference("root.items[0].price", 1D, 4D)),
+                ou.diff(loaded, ou.makeSerializable(o2)).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testHashCollectionEntries() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Map<String, Object> m1 = new HashMap<>();
+        final Map<String, Object> m2 = new HashMap<>();
+        m1.put("a", new Item("a", 1D));
+        m2.put("a", new Item("a", 1D));
+        m1.put("b", new Item("b", 2D));
+        m2.put("b", new Item("b", 3D));
+        m1.put("c", 1);
+        m2.put("d", 1);
+        final Object[] o1 = {m1, new HashSet<>(Arrays.asList("x", "y"))};
+        final Object[] o2 = {m2, new HashSet<>(Arrays.asList("x", "z"))};
+        assertEquals(new HashSet<>(Arrays.asList(
+                new Difference("root[0][b].price", 2D, 3D),
+                new Difference("root[0][c]", 1, null),
+                new Difference("root[0][d]", null, 1),
+                new Difference("root[1][y]", "y", null),
+                new Difference("root[1][z]", null, "z"))),
+                ou.diff(ou.makeSerializable(o1), ou.makeSerializable(o2)).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void testCompositesAreReportedByTypeName() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object[] o1 = {new Item("a", 1D), new int[] {1}};
+        final Object[] o2 = {"a", new Integer[] {1}};
+        assertEquals(Arrays.asList(
+                new Difference("root[0]", Item.class.getTypeName(), "a"),
+                new Difference("root[1]", "int[]", "java.lang.Integer[]")),
+                ou.diff(ou.makeSerializable(o1), ou.makeSerializable(o2)).collect(Collectors.toList()));
+    }
+
+    private static final class Order {
+        final String id;
+
+        TimeUnit unit;
+
+        final Item[] items;
+
+        Order(final String id, final Item... items) {
+            this.id = id;
+            this.unit = TimeUnit.SECONDS;
+            this.items = items;
+        }
+    }
+
+    private static final class Item {
+        String name;
+
+        double price;
+
+        int[] quantities;
+
+        Item(final String name, final double price) {
+            this.name = name;
+            this.price = price;
+            this.quantities = new int[] {1, 1};
+        }
+    }
+}
@@ -23,8 +23,13 @@ package edu.iastate.objectutils;
 import org.apache.commons.text.similarity.HammingDistance;
 import org.junit.Test;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
 
@@ -52,4 +57,126 @@ public class DistanceTest {
         l1.set(2, 5);
         assertEquals(2D, ou.extendedHammingDistance(ou.makeSerializable(l1), ou.makeSerializable(l2)), 1e-5);
     }
+
+    @Test
+    public void hammingDistanceDeepChain() {
+        final ObjectUtils ou = ObjectUtils.build();
+        Object[] l1 = null;
+        Object[] l2 = null;
+        for (int i = 0; i < 200_000; i++) {
+            l1 = new Object[] {i, l1};
+            l2 = new Object[] {i % 1000 == 0 ? -i : i, l2};
+        }
+        assertEquals(199D, ou.extendedHammingDistance(ou.makeSerializable(l1), ou.makeSerializable(l2)), 1e-5);
+    }
+
+    @Test
+    public void hammingDistancePrimitiveArrays() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final int[] ints1 = new int[10_000];
+        final int[] ints2 = new int[10_000];
+        ints2[17] = 1;
+        ints2[9_999] = 1;
+        assertEquals(2D, ou.extendedHammingDistance(ou.makeSerializable(ints1), ou.makeSerializable(ints2)), 1e-5);
+        final double[] doubles1 = {Double.NaN, 0D, 1D};
+        final double[] doubles2 = {Double.NaN, -0D, 1D};
+        assertEquals(1D, ou.extendedHammingDistance(ou.makeSerializable(doubles1), ou.makeSerializable(doubles2)), 1e-5);
+        assertEquals(1D, ou.extendedHammingDistance(ou.makeSerializable(new int[] {1, 2}), ou.makeSerializable(new long[] {1, 2})), 1e-5);
+        assertEquals(1D, ou.extendedHammingDistance(ou.makeSerializable(new char[] {'a'}), ou.makeSerializable(new char[] {'a', 'b'})), 1e-5);
+        assertEquals(1D, ou.extendedHammingDistance(ou.makeSerializable(new Integer[] {1, 2}), ou.makeSerializable(new Integer[] {1, null})), 1e-5);
+    }
+
+    @Test
+    public void hammingDistanceStrings() {
+        final ObjectUtils ou = ObjectUtils.build();
+        assertEquals(2D, ou.extendedHammingDistance(ou.makeSerializable("hello"), ou.makeSerializable("help")), 1e-5);
+        assertEquals(5D, ou.extendedHammingDistance(ou.makeSerializable(""), ou.makeSerializable("hello")), 1e-5);
+        assertEquals(1D, ou.extendedHammingDistance(ou.makeSerializable(new C1(1D, 2, "abc")), ou.makeSerializable(new C1(1D, 2, "abd"))), 1e-5);
+    }
+
+    @Test
+    public void hammingDistanceBatch() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final List<Object> snapshots = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            snapshots.add(ou.makeSerializable(new C1(i % 7, i % 5, "s" + (i % 3))));
+        }
+        final int n = snapshots.size();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final double[] row = ou.extendedHammingDistances(snapshots.get(3), snapshots, pool);
+            final double[] full = ou.extendedHammingDistanceMatrix(snapshots, false, pool);
+            final double[] upper = ou.extendedHammingDistanceMatrix(snapshots, true, pool);
+            assertEquals(n, row.length);
+            assertEquals(n * n, full.length);
+            assertEquals(n * (n - 1) / 2, upper.length);
+            for (int i = 0; i < n; i++) {
+                assertEquals(ou.extendedHammingDistance(snapshots.get(3), snapshots.get(i)), row[i], 1e-5);
+                assertEquals(0D, full[i * n + i], 1e-5);
+                for (int j = i + 1; j < n; j++) {
+                    final double expected = ou.extendedHammingDistance(snapshots.get(i), snapshots.get(j));
+                    assertEquals(expected, full[i * n + j], 1e-5);
+                    assertEquals(expected, full[j * n + i], 1e-5);
+                    assertEquals(expected, upper[ObjectUtils.upperTriangularIndex(n, i, j)], 1e-5);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(0, ou.extendedHammingDistanceMatrix(new ArrayList<>(), true).length);
+    }
+
+    @Test
+    public void hammingDistanceBounded() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object[] l1 = new Object[1000];
+        final Object[] l2 = new Object[1000];
+        for (int i = 0; i < l1.length; i++) {
+            l1[i] = new Student("a" + i, "b", i);
+            l2[i] = new Student("a" + i, "b", i % 10 == 0 ? -i : i);
+        }
+        final Object s1 = ou.makeSerializable(l1);
+        final Object s2 = ou.makeSerializable(l2);
+        assertEquals(99D, ou.extendedHammingDistance(s1, s2), 1e-5);
+        assertEquals(99D, ou.extendedHammingDistance(s1, s2, 99D), 1e-5);
+        assertEquals(ObjectUtils.DISTANCE_EXCEEDED, ou.extendedHammingDistance(s1, s2, 98.5D), 1e-5);
+        assertEquals(ObjectUtils.DISTANCE_EXCEEDED, ou.extendedHammingDistance(s1, s2, 0D), 1e-5);
+        assertEquals(0D, ou.extendedHammingDistance(s1, ou.makeSerializable(l1), 0D), 1e-5);
+        final Set<Integer> set1 = new HashSet<>();
+        final Set<Integer> set2 = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            set1.add(i);
+            set2.add(i < 50 ? i : -i);
+        }
+        assertEquals(50D, ou.extendedHammingDistance(ou.makeSerializable(set1), ou.makeSerializable(set2)), 1e-5);
+        assertEquals(ObjectUtils.DISTANCE_EXCEEDED,
+                ou.extendedHammingDistance(ou.makeSerializable(set1), ou.makeSerializable(set2), 10D), 1e-5);
+    }
+
+    @Test
+    public void primitiveArrayProxiesAgreeWithArrays() {
+        final Object[] lhs = {
+                new int[] {1, -2}, new long[] {1L, -1L << 40}, new short[] {3, -4}, new byte[] {5, -6},
+                new boolean[] {true, false}, new char[] {'a', '\uffff'}, new float[] {Float.NaN, -0F},
+                new double[] {Double.NaN, -0D}
+        };
+        final Object[] rhs = {
+                new int[] {1, 2}, new long[] {1L, 1L << 40}, new short[] {3, 4}, new byte[] {5, 6},
+                new boolean[] {true, true}, new char[] {'a', 'b'}, new float[] {Float.NaN, 0F},
+                new double[] {Double.NaN, 0D}
+        };
+        for (int i = 0; i < lhs.length; i++) {
+            final PrimitiveArrayProxy proxy = PrimitiveArrayProxy.of(lhs[i]);
+            assertEquals(Arrays.deepHashCode(new Object[] {lhs[i]}) - 31, proxy.hashCode());
+            assertEquals(1, proxy.mismatches(PrimitiveArrayProxy.of(rhs[i])));
+            assertEquals(proxy, PrimitiveArrayProxy.of(lhs[i]));
+            assertEquals(Array.get(lhs[i], 1), proxy.get(1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hammingDistanceBoundedRejectsNegativeMaximum() {
+        final ObjectUtils ou = ObjectUtils.build();
+        ou.extendedHammingDistance(ou.makeSerializable(1), ou.makeSerializable(2), -1D);
+    }
 }
@@ -0,0 +1,150 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HashConsingTest {
+    @Test
+    public void testIdenticalSubtreesAreShared() {
+        final ObjectUtils ou = ObjectUtils.build().withHashConsing();
+        final Object[] array = {new Student("a", "b", 1), new Student("a", "b", 1), new Student("a", "c", 1)};
+        final ObjectArrayProxy snapshot = (ObjectArrayProxy) ou.makeSerializable(array);
+        assertNotSame(snapshot.values.get(0), snapshot.values.get(1));
+        assertNotSame(snapshot.values.get(0), snapshot.values.get(2));
+        final ObjectArrayProxy next = (ObjectArrayProxy) ou.makeSerializable(new Object[] {new Student("a", "b", 1)});
+        assertSame(snapshot.values.get(0), next.values.get(0));
+        final Object plain = ObjectUtils.build().makeSerializable(array);
+        assertTrue(ou.deepEquals(snapshot, plain));
+        assertTrue(ou.deepEquals(plain, snapshot));
+        assertEquals(snapshot.hashCode(), plain.hashCode());
+    }
+
+    @Test
+    public void testHashConsingPreservesAliasing() {
+        final ObjectUtils ou = ObjectUtils.build().withHashConsing();
+        final ObjectUtils plain = ObjectUtils.build();
+        final Student shared = new Student("a", "b", 1);
+        final Object[] aliased = {shared, shared};
+        final Object[] distinct = {shared, new Student("a", "b", 1)};
+        final Object[] snapshots = {
+                ou.makeSerializable(aliased),
+                ou.makeSerializable(distinct),
+                plain.makeSerializable(aliased),
+                plain.makeSerializable(distinct),
+                plain.makeSerializable(new Object[] {new Student("a", "b", 1), new Student("a", "b", 1)})
+        };
+        assertTrue(ou.deepEquals(snapshots[0], snapshots[2]));
+        assertTrue(ou.deepEquals(snapshots[1], snapshots[3]));
+        assertFalse(ou.deepEquals(snapshots[0], snapshots[1]));
+        assertTrue(ou.deepEquals(snapshots[3], snapshots[4]));
+        for (final Object a : snapshots) {
+            assertEquals(snapshots[0].hashCode(), a.hashCode());
+            for (final Object b : snapshots) {
+                assertEquals(ou.deepEquals(a, b), ou.deepEquals(b, a));
+                assertEquals(ou.deepEquals(a, b), a.equals(b));
+                for (final Object c : snapshots) {
+                    if (ou.deepEquals(a, b) && ou.deepEquals(b, c)) {
+                        assertTrue(ou.deepEquals(a, c));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSuccessiveSnapshotsShareCanonicalNodes() {
+        final ObjectUtils ou = ObjectUtils.build().withHashConsing();
+        final Map<String, Object> config = new HashMap<>();
+        config.put("name", "service");
+        config.put("ports", new int[] {80, 443});
+        final Object first = ou.makeSerializable(new Object[] {config, 1});
+        final Object second = ou.makeSerializable(new Object[] {config, 2});
+        assertSame(((ObjectArrayProxy) first).values.get(0), ((ObjectArrayProxy) second).values.get(0));
+        assertSame(first, ou.makeSerializable(new Object[] {config, 1}));
+        assertFalse(ou.deepEquals(first, second));
+        assertEquals(1D, ou.extendedHammingDistance(first, second), 0D);
+    }
+
+    @Test
+    public void testAgreesWithPlainSnapshots() {
+        final Object[] corpus = ObjectUtilsTest.liveCorpus();
+        final Object[] twins = ObjectUtilsTest.liveCorpus();
+        final ObjectUtils plain = ObjectUtils.build();
+        final ObjectUtils ou = ObjectUtils.build().withHashConsing();
+        for (int i = 0; i < corpus.length; i++) {
+            final Object lhs = ou.makeSerializable(corpus[i]);
+            assertTrue(ou.deepEquals(lhs, plain.makeSerializable(corpus[i])));
+            for (int j = 0; j < corpus.length; j++) {
+                final Object rhs = ou.makeSerializable(twins[j]);
+                final boolean equal = plain.deepEquals(plain.makeSerializable(corpus[i]),
+                        plain.makeSerializable(twins[j]));
+                assertEquals(equal, ou.deepEquals(lhs, rhs));
+                assertEquals(plain.extendedHammingDistance(plain.makeSerializable(corpus[i]),
+                        plain.makeSerializable(twins[j])), ou.extendedHammingDistance(lhs, rhs), 0D);
+                if (equal && lhs != null) {
+                    assertEquals(lhs.hashCode(), rhs.hashCode());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCyclesAreNotInterned() {
+        final ObjectUtils ou = ObjectUtils.build().withHashConsing();
+        final Object[] cycle = new Object[2];
+        cycle[0] = cycle;
+        cycle[1] = "leaf";
+        final ObjectArrayProxy first = (ObjectArrayProxy) ou.makeSerializable(cycle);
+        final ObjectArrayProxy second = (ObjectArrayProxy) ou.makeSerializable(cycle);
+        assertNotSame(first, second);
+        assertFalse(first.canonical);
+        assertSame(first.values.get(1), second.values.get(1));
+        assertTrue(ou.deepEquals(first, second));
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testSharedDagAgainstPlainSnapshot() {
+        Object lhs = "leaf";
+        Object rhs = "leaf";
+        for (int i = 0; i < 64; i++) {
+            lhs = new Object[] {lhs, lhs};
+            rhs = new Object[] {rhs, rhs};
+        }
+        final ObjectUtils ou = ObjectUtils.build().withHashConsing();
+        final Object hashConsed = ou.makeSerializable(lhs);
+        final Object plain = ObjectUtils.build().makeSerializable(rhs);
+        assertTrue(((ObjectArrayProxy) hashConsed).canonical);
+        assertTrue(ou.deepEquals(hashConsed, plain));
+        assertTrue(ou.deepEquals(plain, hashConsed));
+        assertEquals(0D, ou.extendedHammingDistance(hashConsed, plain), 0D);
+    }
+}
@@ -0,0 +1,153 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazySnapshotTest {
+    @Test
+    public void testLazySnapshotMatchesEagerSnapshot() throws Exception {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object graph = graph();
+        final Object eager = ou.makeSerializable(graph);
+        final Object lazy = ou.makeSerializableLazily(graph);
+        assertTrue(ou.deepEquals(lazy, eager));
+        assertEquals(eager.hashCode(), ou.makeSerializableLazily(graph).hashCode());
+        assertEquals(0D, ou.extendedHammingDistance(ou.makeSerializableLazily(graph), eager), 0D);
+        assertEquals(ProxyWriter.write(eager), ProxyWriter.write(ou.makeSerializableLazily(graph)));
+        assertTrue(ou.deepEquals(eager, roundTrip(ou.makeSerializableLazily(graph))));
+        assertFalse(ou.diff(eager, ou.makeSerializableLazily(graph)).findAny().isPresent());
+    }
+
+    @Test
+    public void testEarlyMismatchLeavesSiblingsUnmaterialized() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Node left = new Node(new Node(null, null), new Node(null, null));
+        final Node right = new Node(new Node(null, null), left.second);
+        ((Node) right.first).id = 7;
+        final ObjectProxy lhs = (ObjectProxy) ou.makeSerializableLazily(left);
+        final ObjectProxy rhs = (ObjectProxy) ou.makeSerializableLazily(right);
+        final LazySnapshot.LazyValues values = (LazySnapshot.LazyValues) lhs.values;
+        assertFalse(values.isMaterialized(1));
+        assertFalse(values.isMaterialized(2));
+        assertFalse(ou.deepEquals(lhs, rhs));
+        assertTrue(values.isMaterialized(1));
+        assertFalse(values.isMaterialized(2));
+    }
+
+    @Test
+    public void testCollectionsAreSealedOnFirstUse() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Set<Object> set = new HashSet<>();
+        set.add(new Node(null, null));
+        set.add("x");
+        final Node root = new Node(null, set);
+        final ObjectProxy lhs = (ObjectProxy) ou.makeSerializableLazily(root);
+        final HashCollectionProxy collection = (HashCollectionProxy) lhs.values.get(2);
+        final LazySnapshot.LazyValues values = (LazySnapshot.LazyValues) collection.values;
+        assertNull(collection.entryHashes);
+        assertFalse(values.isMaterialized(0));
+        assertFalse(values.isMaterialized(1));
+        assertTrue(ou.deepEquals(lhs, ou.makeSerializable(root)));
+        assertEquals(2, collection.entryHashes.length);
+        assertTrue(values.isMaterialized(0));
+        assertTrue(values.isMaterialized(1));
+    }
+
+    @Test
+    public void testOwnSlotsArePinnedAtCapture() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Node node = new Node(null, null);
+        final Object before = ou.makeSerializable(node);
+        final Object lazy = ou.makeSerializableLazily(node);
+        node.id = 3;
+        node.data[0] = 3;
+        node.first = node;
+        assertTrue(ou.deepEquals(before, lazy));
+    }
+
+    @Test
+    public void testCyclesAndCollections() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Node a = new Node(null, null);
+        final Node b = new Node(a, a);
+        a.first = b;
+        final Set<Object> set = new HashSet<>();
+        set.add(a);
+        set.add("x");
+        a.second = set;
+        final Object eager = ou.makeSerializable(a);
+        final Object lazy = ou.makeSerializableLazily(a);
+        assertTrue(ou.deepEquals(eager, lazy));
+        assertTrue(ou.deepEquals(lazy, ou.makeSerializableLazily(a)));
+    }
+
+    private static Object roundTrip(final Object snapshot) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(snapshot);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+
+    private static Object graph() {
+        final Map<Object, Object> map = new HashMap<>();
+        final Node shared = new Node(null, map);
+        final Object[] array = new Object[64];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i % 3 == 0 ? shared : new Node(shared, "n" + i);
+        }
+        map.put("array", array);
+        map.put(1, new long[] {1L, 2L});
+        return new Node(shared, array);
+    }
+
+    private static final class Node {
+        int id;
+
+        Object first;
+
+        Object second;
+
+        final int[] data = {1, 2};
+
+        Node(final Object first, final Object second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+}
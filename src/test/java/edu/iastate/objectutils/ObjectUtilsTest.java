@@ -20,12 +20,26 @@ package edu.iastate.objectutils;
  * #L%
  */
 
-import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ObjectUtilsTest {
@@ -42,7 +56,6 @@ public class ObjectUtilsTest {
     }
 
     @Test
-    @Ignore
     public void testDeepEquals2() {
         final ObjectUtils ou = ObjectUtils.build();
         final HashSet<String> strings1 = new HashSet<>();
@@ -179,4 +192,403 @@ public class ObjectUtilsTest {
         l2.next.next.load = l2;
         assertFalse(ou.deepEquals(ou.makeSerializable(l1), ou.makeSerializable(l2)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFieldLayoutIsComputedOncePerClass() {
+        final AtomicInteger tests = new AtomicInteger();
+        final ObjectUtils ou = ObjectUtils.build().include(field -> tests.incrementAndGet() >= 0);
+        final Student[] students = new Student[100];
+        for (int i = 0; i < students.length; i++) {
+            students[i] = new Student("n" + i, "s" + i, i);
+        }
+        ou.makeSerializable(students);
+        final int afterFirst = tests.get();
+        ou.makeSerializable(students);
+        assertEquals(afterFirst, tests.get());
+        assertTrue(ou.deepEquals(ou.makeSerializable(students), ou.makeSerializable(students.clone())));
+    }
+
+    private static class Primitives {
+        boolean z;
+        byte b;
+        char c;
+        short s;
+        int i;
+        long l;
+        float f;
+        double d;
+
+        Primitives(int seed, double d) {
+            this.z = seed % 2 == 0;
+            this.b = (byte) seed;
+            this.c = (char) ('a' + seed);
+            this.s = (short) seed;
+            this.i = seed;
+            this.l = seed;
+            this.f = seed;
+            this.d = d;
+        }
+    }
+
+    @Test
+    public void testPrimitiveFields() {
+        final ObjectUtils ou = ObjectUtils.build();
+        assertTrue(ou.deepEquals(ou.makeSerializable(new Primitives(3, Double.NaN)),
+                ou.makeSerializable(new Primitives(3, Double.NaN))));
+        assertFalse(ou.deepEquals(ou.makeSerializable(new Primitives(3, 0D)),
+                ou.makeSerializable(new Primitives(3, -0D))));
+        assertFalse(ou.deepEquals(ou.makeSerializable(new Primitives(3, 1D)),
+                ou.makeSerializable(new Primitives(4, 1D))));
+        assertEquals(8D, ou.extendedHammingDistance(ou.makeSerializable(new Primitives(2, 1D)),
+                ou.makeSerializable(new Primitives(3, 2D))), 1e-5);
+        assertFalse(ou.deepEquals(ou.makeSerializable(new Object[] {1}), ou.makeSerializable(new Object[] {1L})));
+    }
+
+    @Test
+    public void testDeepEqualsDeepChain() {
+        final ObjectUtils ou = ObjectUtils.build();
+        Node l1 = null;
+        Node l2 = null;
+        for (int i = 0; i < 200_000; i++) {
+            l1 = new Node(l1);
+            l2 = new Node(l2);
+        }
+        l1.load = l1;
+        l2.load = l2;
+        assertTrue(ou.deepEquals(ou.makeSerializable(l1), ou.makeSerializable(l2)));
+        l2.next.next.load = l2;
+        assertFalse(ou.deepEquals(ou.makeSerializable(l1), ou.makeSerializable(l2)));
+    }
+
+    @Test
+    public void testHashCodeAgreesWithDeepEquals() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object s1 = ou.makeSerializable(new C1(1.31, 10, "hello"));
+        final Object s2 = ou.makeSerializable(new C1(1.31, 10, "hello"));
+        final Object s3 = ou.makeSerializable(new C1(1.31, 11, "hello"));
+        assertTrue(ou.deepEquals(s1, s2));
+        assertEquals(s1, s2);
+        assertEquals(s1.hashCode(), s2.hashCode());
+        assertFalse(s1.equals(s3));
+        final Object[] objects1 = new Object[2];
+        final Object[] objects2 = new Object[2];
+        objects1[0] = objects2;
+        objects1[1] = new int[] {1, 2};
+        objects2[0] = objects1;
+        objects2[1] = new int[] {1, 2};
+        final Object s4 = ou.makeSerializable(objects1);
+        final Object s5 = ou.makeSerializable(objects2);
+        assertEquals(s4.hashCode(), s5.hashCode());
+        final Set<Object> snapshots = new HashSet<>(Arrays.asList(s1, s2, s3, s4, s5));
+        assertEquals(3, snapshots.size());
+        assertTrue(snapshots.contains(ou.makeSerializable(new C1(1.31, 11, "hello"))));
+    }
+
+    @Test
+    public void testDeepEqualsHashMaps() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Map<Object, Object> m1 = new HashMap<>();
+        final Map<Object, Object> m2 = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            m1.put("k" + i, new Student("a" + i, "b", i));
+            m2.put("k" + (999 - i), new Student("a" + (999 - i), "b", 999 - i));
+        }
+        m1.put("self", m1);
+        m2.put("self", m2);
+        assertTrue(ou.deepEquals(ou.makeSerializable(m1), ou.makeSerializable(m2)));
+        assertEquals(ou.makeSerializable(m1).hashCode(), ou.makeSerializable(m2).hashCode());
+        assertEquals(0D, ou.extendedHammingDistance(ou.makeSerializable(m1), ou.makeSerializable(m2)), 1e-5);
+        m2.put("k7", new Student("a7", "b", 8));
+        m2.put("k8", new Student("a8", "c", 8));
+        assertFalse(ou.deepEquals(ou.makeSerializable(m1), ou.makeSerializable(m2)));
+        assertEquals(2D, ou.extendedHammingDistance(ou.makeSerializable(m1), ou.makeSerializable(m2)), 1e-5);
+        final Hashtable<Object, Object> t1 = new Hashtable<>(m1);
+        assertFalse(ou.deepEquals(ou.makeSerializable(m1), ou.makeSerializable(t1)));
+        final Object snapshot = ou.makeSerializable(new Object[] {m1, t1, new HashSet<>(m1.keySet())});
+        assertTrue(ou.deepEquals(snapshot, ProxyReader.read(ProxyWriter.write(snapshot))));
+    }
+
+    @Test
+    public void testCyclesThroughHashSets() {
+        final ObjectUtils ou = ObjectUtils.build();
+        for (int i = 0; i < 200; i++) {
+            final Object s1 = ou.makeSerializable(crossLinkedSets());
+            final Object s2 = ou.makeSerializable(crossLinkedSets());
+            assertTrue(ou.deepEquals(s1, s2));
+            assertEquals(s1.hashCode(), s2.hashCode());
+            assertEquals(0D, ou.extendedHammingDistance(s1, s2), 1e-5);
+        }
+    }
+
+    @Test
+    public void testDeepEqualsLiveHashCollections() {
+        final ObjectUtils ou = ObjectUtils.build();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(ou.deepEqualsLive(crossLinkedSets(), crossLinkedSets()));
+            final Set<Node> lhs = new HashSet<>(Arrays.asList(chain(100, true), chain(100, false)));
+            final Set<Node> rhs = new HashSet<>(Arrays.asList(chain(100, false), chain(100, true)));
+            final Set<Node> other = new HashSet<>(Arrays.asList(chain(100, true), chain(100, true)));
+            assertTrue(ou.deepEqualsLive(lhs, rhs));
+            assertFalse(ou.deepEqualsLive(lhs, other));
+            assertEquals(ou.deepEquals(ou.makeSerializable(lhs), ou.makeSerializable(other)),
+                    ou.deepEqualsLive(lhs, other));
+        }
+    }
+
+    private static Node chain(final int length, final boolean loop) {
+        final Node tail = new Node(null);
+        if (loop) {
+            tail.load = tail;
+        }
+        Node head = tail;
+        for (int i = 1; i < length; i++) {
+            head = new Node(head);
+        }
+        return head;
+    }
+
+    static Set<Object> crossLinkedSets() {
+        final Set<Object> s = new HashSet<>();
+        final Set<Object> t = new HashSet<>();
+        s.add(new Object[] {t});
+        t.add(new Object[] {s});
+        return new HashSet<>(Arrays.asList(s, t));
+    }
+
+    @Test
+    public void testDeepEqualsNestedHashMaps() {
+        final ObjectUtils ou = ObjectUtils.build();
+        Map<Object, Object> m1 = new HashMap<>();
+        Map<Object, Object> m2 = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            final Map<Object, Object> n1 = new HashMap<>();
+            final Map<Object, Object> n2 = new HashMap<>();
+            n1.put("next", m1);
+            n2.put("next", m2);
+            m1 = n1;
+            m2 = n2;
+        }
+        assertTrue(ou.deepEquals(ou.makeSerializable(m1), ou.makeSerializable(m2)));
+        m2.put("tail", 1);
+        assertEquals(1D, ou.extendedHammingDistance(ou.makeSerializable(m1), ou.makeSerializable(m2)), 1e-5);
+    }
+
+    @Test
+    public void testJDKValueTypes() {
+        final ObjectUtils ou = ObjectUtils.build().withJDKValueTypes();
+        final UUID id = UUID.randomUUID();
+        final Object[] objects1 = {new BigDecimal("1.50"), LocalDateTime.of(2020, 1, 2, 3, 4), id, Instant.EPOCH};
+        final Object[] objects2 = {new BigDecimal("1.50"), LocalDateTime.of(2020, 1, 2, 3, 4), id, Instant.EPOCH};
+        final Object s1 = ou.makeSerializable(objects1);
+        final Object s2 = ou.makeSerializable(objects2);
+        assertTrue(ou.makeSerializable(objects1[0]) instanceof ValueProxy);
+        assertTrue(ou.makeSerializable(objects1[1]) instanceof ValueProxy);
+        assertTrue(ou.deepEquals(s1, s2));
+        assertEquals(s1.hashCode(), s2.hashCode());
+        objects2[0] = new BigDecimal("1.5");
+        assertFalse(ou.deepEquals(s1, ou.makeSerializable(objects2)));
+        assertEquals(1D, ou.extendedHammingDistance(s1, ou.makeSerializable(objects2)), 1e-5);
+        assertTrue(ObjectUtils.build().makeSerializable(objects1[0]) instanceof ObjectProxy);
+        assertTrue(ou.deepEquals(s1, ProxyReader.read(ProxyWriter.write(s1))));
+    }
+
+    @Test
+    public void testValueTypes() {
+        final ObjectUtils ou = ObjectUtils.build().withValueTypes(Money.class);
+        final Object s1 = ou.makeSerializable(new Object[] {new Money(100), new Money(100)});
+        final Object s2 = ou.makeSerializable(new Object[] {new Money(100), new Money(100)});
+        assertTrue(ou.makeSerializable(new Money(1)) instanceof ValueProxy);
+        assertTrue(ou.deepEquals(s1, s2));
+        assertFalse(ou.deepEquals(s1, ou.makeSerializable(new Object[] {new Money(100), new Money(101)})));
+        assertTrue(ou.deepEquals(s1, ProxyReader.read(ProxyWriter.write(s1))));
+    }
+
+    @Test
+    public void testValueTypesAreSharedUnlessACopierIsGiven() {
+        final Point point = new Point(1, 2);
+        final ObjectArrayProxy shared = (ObjectArrayProxy) ObjectUtils.build().withValueTypes(Point.class)
+                .makeSerializable(new Object[] {point});
+        assertSame(point, ((ValueProxy) shared.values.get(0)).value);
+        final Tally tally = new Tally();
+        final ObjectArrayProxy copied = (ObjectArrayProxy) ObjectUtils.build().withValueType(Tally.class, Tally::copy)
+                .makeSerializable(new Object[] {tally});
+        assertNotSame(tally, ((ValueProxy) copied.values.get(0)).value);
+    }
+
+    @Test
+    public void testMutableValueTypesAreCopied() {
+        final ObjectUtils ou = ObjectUtils.build().withValueType(Tally.class, Tally::copy);
+        final Tally tally = new Tally();
+        final Object[] graph = {tally};
+        final Object s1 = ou.makeSerializable(graph);
+        final SnapshotSession session = ou.newSession();
+        final Object s2 = session.snapshot(graph);
+        tally.count++;
+        assertTrue(ou.deepEquals(s1, s2));
+        assertFalse(ou.deepEquals(s1, ou.makeSerializable(graph)));
+        assertTrue(ou.deepEquals(ou.makeSerializable(graph), session.snapshot(graph)));
+        assertTrue(ou.deepEquals(s1, ou.makeSerializable(new Object[] {new Tally()})));
+    }
+
+    @Test
+    public void testDeepEqualsLiveAgreesWithSnapshots() {
+        final Object[] corpus = liveCorpus();
+        final Object[] twins = liveCorpus();
+        final ObjectUtils[] configs = {
+                ObjectUtils.build(),
+                ObjectUtils.build().withMaxDepth(2),
+                ObjectUtils.build().withJDKValueTypes().withValueTypes(Money.class)
+        };
+        for (final ObjectUtils ou : configs) {
+            for (int i = 0; i < corpus.length; i++) {
+                assertTrue(ou.deepEqualsLive(corpus[i], twins[i]));
+                for (int j = 0; j < corpus.length; j++) {
+                    assertEquals(ou.deepEquals(ou.makeSerializable(corpus[i]), ou.makeSerializable(twins[j])),
+                            ou.deepEqualsLive(corpus[i], twins[j]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDeepEqualsLiveDeepChain() {
+        final ObjectUtils ou = ObjectUtils.build();
+        Node l1 = null;
+        Node l2 = null;
+        for (int i = 0; i < 200_000; i++) {
+            l1 = new Node(l1);
+            l2 = new Node(l2);
+        }
+        l1.load = l1;
+        l2.load = l2;
+        assertTrue(ou.deepEqualsLive(l1, l2));
+        l2.next.next.load = l2;
+        assertFalse(ou.deepEqualsLive(l1, l2));
+    }
+
+    @Test
+    public void testCompactLayout() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Primitives p1 = new Primitives(3, 2D);
+        final Primitives p2 = new Primitives(3, 2.5D);
+        final Object compact = ou.makeSerializable(p1);
+        final Object expanded = ProxyReader.read(ProxyWriter.write(compact));
+        assertTrue(((ObjectProxy) compact).values instanceof Slots);
+        assertFalse(((ObjectProxy) expanded).values instanceof Slots);
+        assertTrue(ou.deepEquals(compact, expanded));
+        assertTrue(ou.deepEquals(expanded, compact));
+        assertEquals(compact.hashCode(), expanded.hashCode());
+        assertEquals(1D, ou.extendedHammingDistance(ou.makeSerializable(p2), expanded), 1e-5);
+        assertEquals(1D, ou.extendedHammingDistance(ou.makeSerializable(p2), compact), 1e-5);
+        assertFalse(ou.deepEquals(ou.makeSerializable(p2), compact));
+
+        final SnapshotFootprint compactFootprint = ou.retainedSizeOf(compact);
+        final SnapshotFootprint expandedFootprint = ou.retainedSizeOf(expanded);
+        assertEquals(1, compactFootprint.getProxyCount());
+        assertEquals(3, compactFootprint.getObjectCount());
+        assertEquals(9, expandedFootprint.getProxyCount());
+        assertEquals(11, expandedFootprint.getObjectCount());
+        assertTrue(compactFootprint.getBytes() < expandedFootprint.getBytes());
+    }
+
+    @Test
+    public void testFootprintCountsPayloads() {
+        final ObjectUtils ou = ObjectUtils.build().withValueTypes(Money.class);
+        final Integer boxed = 1000;
+        final SnapshotFootprint shared = ou.retainedSizeOf(ou.makeSerializable(new Integer[] {boxed, boxed}));
+        final SnapshotFootprint distinct = ou.retainedSizeOf(ou.makeSerializable(
+                new Integer[] {Integer.valueOf(1000), Integer.valueOf(1000)}));
+        assertEquals(shared.getObjectCount() + 1, distinct.getObjectCount());
+        assertTrue(distinct.getBytes() > shared.getBytes());
+        assertTrue(ou.retainedSizeOf(ou.makeSerializable(new String(new char[1000]))).getBytes() > 1000);
+        final Money money = new Money(1);
+        assertEquals(ou.retainedSizeOf(ou.makeSerializable(new Object[] {money, money})).getObjectCount() + 2,
+                ou.retainedSizeOf(ou.makeSerializable(new Object[] {money, new Money(1)})).getObjectCount());
+    }
+
+    static Object[] liveCorpus() {
+        final Object[] cycle = new Object[2];
+        cycle[0] = cycle;
+        cycle[1] = new int[] {1, 2};
+        final Object[] otherCycle = new Object[2];
+        otherCycle[0] = new Object[] {otherCycle, new int[] {1, 2}};
+        otherCycle[1] = new int[] {1, 2};
+        final Map<Object, Object> map = new HashMap<>();
+        map.put("self", map);
+        map.put(1, new Student("a", "b", 1));
+        final Set<Object> set = new HashSet<>(Arrays.asList("x", 2L, new C1(1.31, 10, "hello")));
+        return new Object[] {
+                null, 1, 1L, Double.NaN, "hello", "help", new int[] {1, 2}, new long[] {1, 2},
+                new Integer[] {1, null}, new Long[0], TimeUnit.SECONDS, TimeUnit.MINUTES,
+                new C1(1.31, 10, "hello"), new C1(1.31, 11, "hello"), new C2(1.31, 10, new Object[] {"hello"}),
+                new Primitives(3, 2D), new Object[] {1}, new Object[] {1L}, cycle, otherCycle,
+                map, new Hashtable<>(map), set, new BigDecimal("1.50"), new BigDecimal("1.5"),
+                new Object[] {new Money(100), new Money(100)}, new Object[] {new Money(100), new Money(101)},
+                new Object[] {new Object[] {new Object[] {1}}}, new Object[] {new Object[] {new Object[] {2}}}
+        };
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testValueTypesRequireEquals() {
+        ObjectUtils.build().withValueTypes(Student.class);
+    }
+
+    static final class Point {
+        private final int x;
+
+        private final int y;
+
+        Point(final int x, final int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Point && ((Point) o).x == this.x && ((Point) o).y == this.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.x + this.y;
+        }
+    }
+
+    static final class Money implements Serializable {
+        private final long cents;
+
+        Money(final long cents) {
+            this.cents = cents;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Money && ((Money) o).cents == this.cents;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.cents);
+        }
+    }
+
+    static final class Tally implements Serializable {
+        int count;
+
+        Tally copy() {
+            final Tally copy = new Tally();
+            copy.count = this.count;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Tally && ((Tally) o).count == this.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.count;
+        }
+    }
+}
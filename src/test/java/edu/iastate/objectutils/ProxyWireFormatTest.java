@@ -0,0 +1,224 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProxyWireFormatTest {
+    private static Object roundTrip(final Object snapshot) {
+        return ProxyReader.read(ProxyWriter.write(snapshot));
+    }
+
+    @Test
+    public void testRoundTrip1() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object[] objects = {
+                new C1(1.31, 10, "hello"),
+                new Student("a", "b", 3.D),
+                new int[] {1, 2, 3},
+                new long[] {Long.MIN_VALUE, Long.MAX_VALUE},
+                new double[] {Double.NaN, -0D},
+                new float[] {1.5F},
+                new char[] {'x', '\uFFFF'},
+                new short[] {-1},
+                new byte[] {-128, 127},
+                new boolean[] {true, false},
+                new Integer[] {1, null, -1},
+                new Character[] {'c'},
+                TimeUnit.SECONDS,
+                'q',
+                (short) -7,
+                (byte) -3,
+                -1.5F,
+                false,
+                null
+        };
+        final Object snapshot = ou.makeSerializable(objects);
+        final Object loaded = roundTrip(snapshot);
+        assertTrue(ou.deepEquals(snapshot, loaded));
+        assertEquals(snapshot.hashCode(), loaded.hashCode());
+        objects[2] = new int[] {1, 2, 4};
+        assertFalse(ou.deepEquals(ou.makeSerializable(objects), loaded));
+    }
+
+    @Test
+    public void testRoundTripStrings() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final String shared = "shared";
+        final Object[] objects = {"", "ascii", "\u00e9\u4e2d\uD83D\uDE00", "\uD800", shared, shared};
+        final Object snapshot = ou.makeSerializable(objects);
+        final Object loaded = roundTrip(snapshot);
+        assertTrue(ou.deepEquals(snapshot, loaded));
+        assertEquals(snapshot.hashCode(), loaded.hashCode());
+        objects[3] = "\uD801";
+        assertFalse(ou.deepEquals(ou.makeSerializable(objects), loaded));
+    }
+
+    @Test
+    public void testRoundTripCycles() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object[] objects1 = new Object[2];
+        final Object[] objects2 = new Object[2];
+        objects1[0] = objects2;
+        objects1[1] = objects1;
+        objects2[0] = objects1;
+        objects2[1] = 1;
+        final Object snapshot = ou.makeSerializable(objects1);
+        final Object loaded = roundTrip(snapshot);
+        assertTrue(ou.deepEquals(snapshot, loaded));
+        final ObjectArrayProxy root = (ObjectArrayProxy) loaded;
+        assertTrue(root.values.get(1) == root);
+        assertTrue(((ObjectArrayProxy) root.values.get(0)).values.get(0) == root);
+    }
+
+    @Test
+    public void testRoundTripDeepChain() {
+        final ObjectUtils ou = ObjectUtils.build();
+        Object[] chain = null;
+        for (int i = 0; i < 200_000; i++) {
+            chain = new Object[] {i, chain};
+        }
+        final Object snapshot = ou.makeSerializable(chain);
+        assertTrue(ou.deepEquals(snapshot, roundTrip(snapshot)));
+    }
+
+    @Test
+    public void testChannels() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object[] objects = new Object[1000];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = i % 2 == 0 ? new C1(i, i, "s" + i) : new double[i];
+        }
+        final Object snapshot = ou.makeSerializable(objects);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProxyWriter.write(snapshot, Channels.newChannel(bytes));
+        final Object loaded = ProxyReader.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(ou.deepEquals(snapshot, loaded));
+        assertEquals(ProxyWriter.write(snapshot), ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testSnapshotsShareOneChannel() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final WritableByteChannel out = Channels.newChannel(bytes);
+        for (int i = 0; i < 10; i++) {
+            ProxyWriter.write(ou.makeSerializable(new Object[] {"s" + i, new int[i * 1000]}), out);
+        }
+        final ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ou.deepEquals(ou.makeSerializable(new Object[] {"s" + i, new int[i * 1000]}),
+                    ProxyReader.read(in)));
+        }
+        assertEquals(-1, in.read(ByteBuffer.allocate(1)));
+    }
+
+    @Test(timeout = 10_000L)
+    public void testTruncatedInputIsRejected() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object[] objects = {new int[] {1, 2, 3}, "hello", new C1(1.31, 10, "hello"), new Integer[] {1, null}};
+        for (final Object object : objects) {
+            final ByteBuffer encoded = ProxyWriter.write(ou.makeSerializable(object));
+            final byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            for (int cut = 0; cut < bytes.length; cut++) {
+                try {
+                    ProxyReader.read(ByteBuffer.wrap(bytes, 0, cut));
+                    fail("Accepted a stream truncated to " + cut + " bytes");
+                } catch (final IllegalArgumentException expected) {
+                    assertTrue(expected.getCause() instanceof EOFException);
+                }
+                try {
+                    ProxyReader.read(Channels.newChannel(new ByteArrayInputStream(bytes, 0, cut)));
+                    fail("Accepted a channel truncated to " + cut + " bytes");
+                } catch (final EOFException expected) {
+                    assertTrue(expected.getMessage().contains("Truncated"));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLengthIsRejected() {
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putInt(WireFormat.MAGIC).put(WireFormat.VERSION).put(WireFormat.STRING);
+        buffer.put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0x0F);
+        buffer.flip();
+        ProxyReader.read(buffer);
+    }
+
+    @Test
+    public void testUnlistedValueClassesAreRejected() throws IOException {
+        final ByteArrayOutputStream value = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(value)) {
+            oos.writeObject(new ArrayList<>(Collections.singleton("payload")));
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(value.size() + 16);
+        buffer.putInt(WireFormat.MAGIC).put(WireFormat.VERSION).put(WireFormat.VALUE);
+        for (int length = value.size(); ; length >>>= 7) {
+            if (length < 0x80) {
+                buffer.put((byte) length);
+                break;
+            }
+            buffer.put((byte) (length | 0x80));
+        }
+        buffer.put(value.toByteArray()).flip();
+        try {
+            ProxyReader.read(buffer);
+            fail("Accepted a value of an unlisted class");
+        } catch (final IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("java.util.ArrayList"));
+        }
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Student[] students = new Student[1000];
+        for (int i = 0; i < students.length; i++) {
+            students[i] = new Student("name" + i, "surname" + i, i / 250.D);
+        }
+        final Object snapshot = ou.makeSerializable(students);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(snapshot);
+        }
+        assertTrue(ProxyWriter.write(snapshot).remaining() * 2 < bytes.size());
+    }
+}
@@ -20,15 +20,17 @@ package edu.iastate.objectutils;
  * #L%
  */
 
-import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -88,7 +90,6 @@ public class SerializationWrapperTest {
     }
 
     @Test
-    @Ignore
     public void testMakeSerializable3() {
         final ObjectUtils ou = ObjectUtils.build();
 
@@ -141,4 +142,41 @@ public class SerializationWrapperTest {
 
         assertFalse(ou.deepEquals(original, loaded));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMakeSerializableDeepChain() {
+        final ObjectUtils ou = ObjectUtils.build();
+        Object[] chain = null;
+        for (int i = 0; i < 200_000; i++) {
+            chain = new Object[] {i, chain};
+        }
+        Object proxy = ou.makeSerializable(chain);
+        int length = 0;
+        while (proxy instanceof ObjectArrayProxy) {
+            proxy = ((ObjectArrayProxy) proxy).values.get(1);
+            length++;
+        }
+        assertEquals(200_000, length);
+        assertSame(Null.V, proxy);
+    }
+
+    @Test
+    public void testJavaSerializationCarriesTypeNamesOnce() throws Exception {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Object[] students = new Object[100];
+        for (int i = 0; i < students.length; i++) {
+            students[i] = new Student("a" + i, "b" + i, i);
+        }
+        final Object snapshot = ou.makeSerializable(students);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(snapshot);
+        }
+        final String serialized = new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1);
+        final String typeName = Student.class.getTypeName();
+        assertEquals(serialized.indexOf(typeName), serialized.lastIndexOf(typeName));
+        try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertTrue(ou.deepEquals(snapshot, ois.readObject()));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotArenaTest {
+    @Test
+    public void testArenaAgreesWithSnapshots() {
+        final Object[] corpus = ObjectUtilsTest.liveCorpus();
+        final Object[] twins = ObjectUtilsTest.liveCorpus();
+        final ObjectUtils[] configs = {
+                ObjectUtils.build(),
+                ObjectUtils.build().withMaxDepth(2),
+                ObjectUtils.build().withJDKValueTypes().withValueTypes(ObjectUtilsTest.Money.class)
+        };
+        for (final ObjectUtils ou : configs) {
+            final SnapshotArena arena = new SnapshotArena(1 << 10);
+            final Object[] lhs = new Object[corpus.length];
+            final Object[] rhs = new Object[corpus.length];
+            final long[] lhsHandles = new long[corpus.length];
+            final long[] rhsHandles = new long[corpus.length];
+            for (int i = 0; i < corpus.length; i++) {
+                lhs[i] = ou.makeSerializable(corpus[i]);
+                rhs[i] = ou.makeSerializable(twins[i]);
+                lhsHandles[i] = arena.add(lhs[i]);
+                rhsHandles[i] = arena.add(rhs[i]);
+            }
+            assertEquals(2 * corpus.length, arena.size());
+            for (int i = 0; i < corpus.length; i++) {
+                assertTrue(ou.deepEquals(lhs[i], arena.get(lhsHandles[i])));
+                assertTrue(arena.deepEquals(lhsHandles[i], lhsHandles[i]));
+                for (int j = 0; j < corpus.length; j++) {
+                    assertEquals(ou.deepEquals(lhs[i], rhs[j]), arena.deepEquals(lhsHandles[i], rhsHandles[j]));
+                    assertEquals(ou.extendedHammingDistance(lhs[i], rhs[j]),
+                            arena.extendedHammingDistance(lhsHandles[i], rhsHandles[j]), 0D);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCyclicHashCollections() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final SnapshotArena arena = new SnapshotArena();
+        final long cross = arena.add(ou.makeSerializable(ObjectUtilsTest.crossLinkedSets()));
+        final long crossTwin = arena.add(ou.makeSerializable(ObjectUtilsTest.crossLinkedSets()));
+        assertTrue(arena.deepEquals(cross, crossTwin));
+        assertEquals(0D, arena.extendedHammingDistance(cross, crossTwin), 0D);
+        final Object lhs = ou.makeSerializable(new HashSet<>(Arrays.asList(chain(100, true), chain(100, false))));
+        final Object rhs = ou.makeSerializable(new HashSet<>(Arrays.asList(chain(100, false), chain(100, true))));
+        final Object other = ou.makeSerializable(new HashSet<>(Arrays.asList(chain(100, true), chain(100, true))));
+        final long lhsHandle = arena.add(lhs);
+        final long rhsHandle = arena.add(rhs);
+        final long otherHandle = arena.add(other);
+        assertTrue(arena.deepEquals(lhsHandle, rhsHandle));
+        assertFalse(arena.deepEquals(lhsHandle, otherHandle));
+        assertEquals(ou.extendedHammingDistance(lhs, other), arena.extendedHammingDistance(lhsHandle, otherHandle), 0D);
+    }
+
+    private static Object[] chain(final int length, final boolean loop) {
+        final Object[] tail = new Object[1];
+        if (loop) {
+            tail[0] = tail;
+        }
+        Object[] head = tail;
+        for (int i = 1; i < length; i++) {
+            head = new Object[] {head};
+        }
+        return head;
+    }
+
+    @Test
+    public void testSegmentRollover() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final SnapshotArena arena = new SnapshotArena(64);
+        final List<Long> handles = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final Map<String, Object> map = new HashMap<>();
+            map.put("key" + i, new int[i]);
+            handles.add(arena.add(ou.makeSerializable(map)));
+        }
+        assertTrue(arena.allocatedBytes() >= arena.usedBytes());
+        assertTrue(arena.usedBytes() > 64);
+        final Object first = arena.get(handles.get(0));
+        for (int i = 0; i < 100; i++) {
+            final Map<String, Object> map = new HashMap<>();
+            map.put("key" + i, new int[i]);
+            assertTrue(ou.deepEquals(ou.makeSerializable(map), arena.get(handles.get(i))));
+            assertEquals(ou.extendedHammingDistance(first, ou.makeSerializable(map)),
+                    arena.extendedHammingDistance(handles.get(0), handles.get(i)), 0D);
+        }
+    }
+
+    @Test
+    public void testSharedSubgraphsStayShared() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final int[] shared = {1, 2, 3};
+        final Object[] pair = {shared, shared};
+        final SnapshotArena arena = new SnapshotArena();
+        final long handle = arena.add(ou.makeSerializable(pair));
+        final Object[] other = {shared, new int[] {1, 2, 3}};
+        assertTrue(arena.deepEquals(handle, arena.add(ou.makeSerializable(other))));
+        assertTrue(ou.deepEquals(ou.makeSerializable(pair), arena.get(handle)));
+        assertFalse(arena.deepEquals(handle, arena.add(ou.makeSerializable(new Object[] {shared, null}))));
+    }
+
+    @Test
+    public void testValuesAreComparedWithEquals() {
+        final ObjectUtils ou = ObjectUtils.build().withValueTypes(Tagged.class);
+        final Object tagged = ou.makeSerializable(new Object[] {new Tagged(1, "first"), "x"});
+        final Object retagged = ou.makeSerializable(new Object[] {new Tagged(1, "second"), "x"});
+        final Object other = ou.makeSerializable(new Object[] {new Tagged(2, "first"), "x"});
+        final SnapshotArena arena = new SnapshotArena();
+        final long handle = arena.add(tagged);
+        assertTrue(ou.deepEquals(tagged, retagged));
+        assertTrue(arena.deepEquals(handle, arena.add(retagged)));
+        assertEquals(0D, arena.extendedHammingDistance(handle, arena.add(retagged)), 0D);
+        assertFalse(arena.deepEquals(handle, arena.add(other)));
+        assertEquals(ou.extendedHammingDistance(tagged, other),
+                arena.extendedHammingDistance(handle, arena.add(other)), 0D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsForeignHandles() {
+        final SnapshotArena arena = new SnapshotArena();
+        arena.add(ObjectUtils.build().makeSerializable(1));
+        arena.get(5L << 32);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonSnapshots() {
+        new SnapshotArena().add("not a snapshot");
+    }
+
+    static final class Tagged implements Serializable {
+        private final int id;
+
+        private final String note;
+
+        Tagged(final int id, final String note) {
+            this.id = id;
+            this.note = note;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Tagged && ((Tagged) o).id == this.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.id;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotSessionTest {
+    @Test
+    public void testUnchangedGraphIsReused() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final SnapshotSession session = ou.newSession();
+        final Object[] graph = graph(1000);
+        final Object s1 = session.snapshot(graph);
+        assertTrue(ou.deepEquals(ou.makeSerializable(graph), s1));
+        assertSame(s1, session.snapshot(graph));
+    }
+
+    @Test
+    public void testChangesAreRebuiltAndSiblingsReused() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final SnapshotSession session = ou.newSession();
+        final Object[] graph = graph(1000);
+        final Object before = ou.makeSerializable(graph);
+        final Object s1 = session.snapshot(graph);
+
+        ((Cell) graph[5]).value = -5;
+        final Object s2 = session.snapshot(graph);
+        assertNotSame(s1, s2);
+        assertTrue(ou.deepEquals(before, s1));
+        assertFalse(ou.deepEquals(s1, s2));
+        assertFresh(ou, graph, s2);
+        final List<Proxy> values1 = ((ObjectArrayProxy) s1).values;
+        final List<Proxy> values2 = ((ObjectArrayProxy) s2).values;
+        assertSame(values1.get(7), values2.get(7));
+        assertNotSame(values1.get(5), values2.get(5));
+
+        ((Cell) graph[9]).data[0]++;
+        assertFresh(ou, graph, session.snapshot(graph));
+
+        ((Cell) graph[13]).next = new Cell(42, null);
+        assertFresh(ou, graph, session.snapshot(graph));
+
+        @SuppressWarnings("unchecked")
+        final Map<Object, Object> map = (Map<Object, Object>) graph[0];
+        map.put("k", "v");
+        assertFresh(ou, graph, session.snapshot(graph));
+
+        graph[11] = null;
+        assertFresh(ou, graph, session.snapshot(graph));
+    }
+
+    @Test
+    public void testCyclesArePropagated() {
+        final ObjectUtils ou = ObjectUtils.build();
+        final SnapshotSession session = ou.newSession();
+        final Cell a = new Cell(1, null);
+        final Cell b = new Cell(2, a);
+        final Cell c = new Cell(3, b);
+        a.next = c;
+        final Object s1 = session.snapshot(a);
+        assertSame(s1, session.snapshot(a));
+        b.value = 20;
+        final Object s2 = session.snapshot(a);
+        assertNotSame(s1, s2);
+        assertFresh(ou, a, s2);
+        assertFalse(ou.deepEquals(s1, s2));
+    }
+
+    private static void assertFresh(final ObjectUtils ou, final Object graph, final Object incremental) {
+        final Object fresh = ou.makeSerializable(graph);
+        assertTrue(ou.deepEquals(fresh, incremental));
+        assertEquals(fresh.hashCode(), incremental.hashCode());
+        assertEquals(ProxyWriter.write(fresh), ProxyWriter.write(incremental));
+    }
+
+    private static Object[] graph(final int size) {
+        final Object[] graph = new Object[size];
+        final Map<Object, Object> map = new HashMap<>();
+        map.put("graph", graph);
+        graph[0] = map;
+        final Cell shared = new Cell(-1, null);
+        for (int i = 1; i < size; i++) {
+            graph[i] = new Cell(i, i % 2 == 0 ? shared : null);
+        }
+        shared.next = (Cell) graph[1];
+        return graph;
+    }
+
+    private static final class Cell {
+        int value;
+
+        Cell next;
+
+        final int[] data;
+
+        Cell(final int value, final Cell next) {
+            this.value = value;
+            this.next = next;
+            this.data = new int[] {value, value};
+        }
+    }
+}
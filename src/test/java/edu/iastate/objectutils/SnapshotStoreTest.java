@@ -0,0 +1,220 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnapshotStoreTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStoredSnapshotsAgreeWithLiveSnapshots() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build().withJDKValueTypes().withValueTypes(ObjectUtilsTest.Money.class);
+        final Object[] corpus = ObjectUtilsTest.liveCorpus();
+        final Object[] twins = ObjectUtilsTest.liveCorpus();
+        final Path path = this.folder.getRoot().toPath().resolve("golden.snapshots");
+        try (SnapshotStore store = SnapshotStore.open(path, 256)) {
+            for (final Object object : corpus) {
+                store.append(ou.makeSerializable(object));
+            }
+        }
+        try (SnapshotStore store = SnapshotStore.open(path, 256)) {
+            assertEquals(corpus.length, store.size());
+            for (int i = 0; i < corpus.length; i++) {
+                final Object stored = ou.makeSerializable(corpus[i]);
+                assertTrue(ou.deepEquals(stored, store.get(i)));
+                assertTrue(store.deepEquals(i, i));
+                for (int j = 0; j < corpus.length; j++) {
+                    final Object live = ou.makeSerializable(twins[j]);
+                    assertEquals(ou.deepEquals(stored, live), store.deepEquals(i, live));
+                    assertEquals(ou.extendedHammingDistance(stored, live), store.extendedHammingDistance(i, live), 0D);
+                    assertEquals(ou.deepEquals(stored, ou.makeSerializable(corpus[j])), store.deepEquals(i, j));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAppendAfterReopen() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Path path = this.folder.getRoot().toPath().resolve("append.snapshots");
+        for (int round = 0; round < 3; round++) {
+            try (SnapshotStore store = SnapshotStore.open(path, 128)) {
+                for (int i = 0; i < 20; i++) {
+                    assertEquals(round * 20 + i, store.append(ou.makeSerializable(mapOf(round * 20 + i))));
+                }
+            }
+        }
+        try (SnapshotStore store = SnapshotStore.open(path)) {
+            assertEquals(60, store.size());
+            for (int i = 0; i < 60; i++) {
+                assertTrue(store.deepEquals(i, ou.makeSerializable(mapOf(i))));
+                assertFalse(store.deepEquals(i, ou.makeSerializable(mapOf(i + 1))));
+            }
+        }
+    }
+
+    @Test
+    public void testTornIndexEntryIsDiscarded() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Path path = this.folder.getRoot().toPath().resolve("torn.snapshots");
+        try (SnapshotStore store = SnapshotStore.open(path)) {
+            store.append(ou.makeSerializable(mapOf(0)));
+            store.append(ou.makeSerializable(mapOf(1)));
+        }
+        try (FileChannel index = FileChannel.open(path.resolveSibling("torn.snapshots.idx"),
+                StandardOpenOption.WRITE)) {
+            index.truncate(index.size() - 5);
+        }
+        try (SnapshotStore store = SnapshotStore.open(path)) {
+            assertEquals(1, store.size());
+            assertEquals(1, store.append(ou.makeSerializable(mapOf(2))));
+            assertTrue(store.deepEquals(1, ou.makeSerializable(mapOf(2))));
+            assertTrue(store.deepEquals(0, ou.makeSerializable(mapOf(0))));
+        }
+    }
+
+    @Test
+    public void testUnpersistedTailIsDiscarded() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Path path = this.folder.getRoot().toPath().resolve("unpersisted.snapshots");
+        try (SnapshotStore store = SnapshotStore.open(path)) {
+            for (int i = 0; i < 3; i++) {
+                store.append(ou.makeSerializable(mapOf(i)));
+            }
+        }
+        overwriteRecord(path, 2, (byte) 0);
+        try (SnapshotStore store = SnapshotStore.open(path)) {
+            assertEquals(2, store.size());
+            assertEquals(2, store.append(ou.makeSerializable(mapOf(3))));
+            assertTrue(store.deepEquals(1, ou.makeSerializable(mapOf(1))));
+            assertTrue(store.deepEquals(2, ou.makeSerializable(mapOf(3))));
+        }
+        try (SnapshotStore store = SnapshotStore.open(path)) {
+            assertEquals(3, store.size());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptRecordIsRejected() throws IOException {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Path path = this.folder.getRoot().toPath().resolve("corrupt.snapshots");
+        try (SnapshotStore store = SnapshotStore.open(path)) {
+            for (int i = 0; i < 3; i++) {
+                store.append(ou.makeSerializable(mapOf(i)));
+            }
+        }
+        overwriteRecord(path, 0, (byte) 0x5A);
+        SnapshotStore.open(path).close();
+    }
+
+    @Test
+    public void testUnlistedValueClassesAreRejected() throws IOException {
+        try (SnapshotStore store = SnapshotStore.open(this.folder.newFile().toPath())) {
+            store.append(new ValueProxy(new ArrayList<>(Collections.singleton("payload"))));
+            store.get(0);
+            fail("Deserialized a value of an unlisted class");
+        } catch (final IllegalArgumentException expected) {
+            assertTrue(expected.getCause() instanceof InvalidClassException);
+        }
+    }
+
+    @Test
+    public void testReadsRacingCloseNeverSeeTruncatedData() throws Exception {
+        final ObjectUtils ou = ObjectUtils.build();
+        final Path path = this.folder.getRoot().toPath().resolve("racing.snapshots");
+        final SnapshotStore store = SnapshotStore.open(path, 1 << 12);
+        for (int i = 0; i < 20; i++) {
+            store.append(ou.makeSerializable(mapOf(i)));
+        }
+        final Object expected = ou.makeSerializable(mapOf(7));
+        final Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    assertTrue(store.deepEquals(7, expected));
+                }
+            } catch (final IllegalStateException closed) {
+                return;
+            }
+        });
+        final Throwable[] failure = new Throwable[1];
+        reader.setUncaughtExceptionHandler((thread, e) -> failure[0] = e);
+        reader.start();
+        Thread.sleep(20L);
+        store.close();
+        reader.join();
+        assertNull(failure[0]);
+        try (SnapshotStore reopened = SnapshotStore.open(path)) {
+            assertEquals(20, reopened.size());
+            assertTrue(reopened.deepEquals(7, expected));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRejectsUnknownIds() throws IOException {
+        try (SnapshotStore store = SnapshotStore.open(this.folder.newFile().toPath())) {
+            store.get(0);
+        }
+    }
+
+    private static void overwriteRecord(final Path path, final int id, final byte fill) throws IOException {
+        final ByteBuffer entry = ByteBuffer.allocate(12);
+        try (FileChannel index = FileChannel.open(path.resolveSibling(path.getFileName() + ".idx"),
+                StandardOpenOption.READ)) {
+            index.read(entry, id * 16L);
+        }
+        entry.flip();
+        final long offset = entry.getLong();
+        final byte[] bytes = new byte[entry.getInt()];
+        Arrays.fill(bytes, fill);
+        try (FileChannel data = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            data.write(ByteBuffer.wrap(bytes), offset);
+        }
+    }
+
+    private static Map<String, Object> mapOf(final int i) {
+        final Map<String, Object> map = new HashMap<>();
+        map.put("key", new int[] {i, i + 1});
+        map.put("self", map);
+        return map;
+    }
+}
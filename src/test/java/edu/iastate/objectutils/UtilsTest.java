@@ -0,0 +1,68 @@
+package edu.iastate.objectutils;
+
+/*
+ * #%L
+ * Object Utilities
+ * %%
+ * Copyright (C) 2019 - 2022 Iowa State University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UtilsTest {
+    @Test
+    public void testIndexContainsEveryListedClass() throws IOException {
+        final List<String> classes = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                UtilsTest.class.getResourceAsStream("/jdk-classes.txt"), StandardCharsets.UTF_8))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (!line.isEmpty()) {
+                    classes.add(line);
+                }
+            }
+        }
+        final JDKClassIndex index = JDKClassIndex.load();
+        for (final String className : classes) {
+            assertTrue(className, index.contains(className));
+        }
+        assertFalse(index.contains("java.util.HashMapx"));
+        assertFalse(index.contains("java.util.HashMa"));
+        assertFalse(index.contains("edu.iastate.objectutils.ObjectUtils"));
+        assertFalse(index.contains("NoPackage"));
+    }
+
+    @Test
+    public void testIsJDKClass() {
+        assertTrue(Utils.isJDKClass(String.class));
+        assertTrue(Utils.isJDKClass("java.util.HashMap"));
+        assertTrue(Utils.isJDKClass("sun.misc.Unsafe"));
+        assertTrue(Utils.isJDKClass("java.not.in.the.List"));
+        assertFalse(Utils.isJDKClass(UtilsTest.class));
+        assertFalse(Utils.isJDKClass("javax.servlet.Servlet"));
+        assertTrue(Utils.isJDKValueType(java.time.LocalDate.class));
+        assertFalse(Utils.isJDKValueType(java.util.ArrayList.class));
+    }
+}